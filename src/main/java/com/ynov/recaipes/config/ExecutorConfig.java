@@ -0,0 +1,163 @@
+package com.ynov.recaipes.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.task.SimpleAsyncTaskExecutorBuilder;
+import org.springframework.boot.task.ThreadPoolTaskExecutorBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Exécuteurs de l'application.
+ * Avec {@code spring.threads.virtual.enabled=true} sur un JRE 21+, Tomcat (configuré par Spring Boot)
+ * et tous les exécuteurs ci-dessous utilisent des threads virtuels : les appels bloquants
+ * (OpenAI, DALL·E, bucket, téléchargements) ne monopolisent plus de thread plateforme.
+ * Sur un JRE plus ancien, on conserve les pools classiques.
+ */
+@Configuration
+public class ExecutorConfig {
+
+    private final boolean virtualThreads;
+
+    public ExecutorConfig(Environment environment) {
+        this.virtualThreads = Threading.VIRTUAL.isActive(environment);
+        if (!virtualThreads && environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false)) {
+            System.err.println("⚠️ spring.threads.virtual.enabled ignoré : Java " + Runtime.version().feature()
+                    + " détecté, les threads virtuels nécessitent Java 21+. Utilisation des pools classiques.");
+        } else if (virtualThreads) {
+            System.out.println("🧵 Threads virtuels activés pour Tomcat, les tâches et les appels distants");
+        }
+    }
+
+    /**
+     * Exécuteur par défaut de Spring (spring.task.execution.*).
+     * Déclarer un autre Executor désactive l'auto-configuration, on le recrée donc explicitement.
+     */
+    @Bean(name = {"applicationTaskExecutor", "taskExecutor"})
+    public AsyncTaskExecutor applicationTaskExecutor(ThreadPoolTaskExecutorBuilder threadPoolBuilder,
+                                                     SimpleAsyncTaskExecutorBuilder simpleBuilder) {
+        return virtualThreads ? simpleBuilder.build() : threadPoolBuilder.build();
+    }
+
+    /**
+     * Pool dédié aux étapes parallèles du pipeline de génération (image DALL·E, téléchargement...)
+     */
+    @Bean
+    public AsyncTaskExecutor recipePipelineExecutor(
+            @Value("${recipe.pipeline.threads:16}") int threads,
+            @Value("${recipe.pipeline.queue-capacity:200}") int queueCapacity) {
+        if (virtualThreads) {
+            return virtualExecutor("recipe-pipeline-", SimpleAsyncTaskExecutor.UNBOUNDED_CONCURRENCY);
+        }
+        return boundedExecutor("recipe-pipeline-", threads, queueCapacity);
+    }
+
+    /**
+     * Pool borné des générations asynchrones (POST /api/recipes/async et batchs).
+     * Une file pleine rejette la soumission au lieu de bloquer un thread Tomcat.
+     * En threads virtuels, la borne devient le nombre de générations en cours ({@code recipe.jobs.max-in-flight}).
+     */
+    @Bean
+    public AsyncTaskExecutor recipeJobExecutor(
+            @Value("${recipe.jobs.threads:8}") int threads,
+            @Value("${recipe.jobs.queue-capacity:100}") int queueCapacity,
+            @Value("${recipe.jobs.max-in-flight:1000}") int maxInFlight) {
+        if (virtualThreads) {
+            return virtualExecutor("recipe-job-", maxInFlight);
+        }
+        return boundedExecutor("recipe-job-", threads, queueCapacity);
+    }
+
+    /**
+     * Recettes d'un batch exécutées en parallèle. Pool distinct de celui des tâches :
+     * une tâche batch qui attend ses recettes ne peut pas priver celles-ci de threads.
+     * La concurrence par batch est bornée par {@code recipe.batch.concurrency}.
+     */
+    @Bean
+    public AsyncTaskExecutor recipeBatchItemExecutor(
+            @Value("${recipe.batch.item-threads:16}") int threads,
+            @Value("${recipe.batch.item-queue-capacity:200}") int queueCapacity) {
+        if (virtualThreads) {
+            return virtualExecutor("recipe-batch-item-", SimpleAsyncTaskExecutor.UNBOUNDED_CONCURRENCY);
+        }
+        return boundedExecutor("recipe-batch-item-", threads, queueCapacity);
+    }
+
+    /**
+     * Générations en streaming (SSE), longues : pool distinct de celui de Spring pour ne pas bloquer
+     * les autres tâches @Async. Sans file d'attente : au-delà de {@code recipe.stream.max-concurrent} flux,
+     * la soumission est rejetée.
+     */
+    @Bean
+    public AsyncTaskExecutor recipeStreamExecutor(@Value("${recipe.stream.max-concurrent:32}") int maxConcurrent) {
+        if (virtualThreads) {
+            return virtualExecutor("recipe-stream-", maxConcurrent);
+        }
+        return boundedExecutor("recipe-stream-", maxConcurrent, 0);
+    }
+
+    /**
+     * Appels OpenAI doublés (hedging). Sans file d'attente : si le pool est saturé, la soumission est rejetée
+     * (AbortPolicy) ; {@link com.ynov.recaipes.service.RequestHedger} exécute alors l'appel dans le thread
+     * appelant, sans doublon. CallerRunsPolicy n'est pas utilisée : le doublon bloquerait l'appelant.
+     */
+    @Bean
+    public AsyncTaskExecutor openAiHedgeExecutor(@Value("${openai.hedge.threads:16}") int threads) {
+        if (virtualThreads) {
+            return virtualExecutor("openai-hedge-", threads);
+        }
+        return boundedExecutor("openai-hedge-", threads, 0);
+    }
+
+    /**
+     * Uploads doublés vers un second provider de stockage. Distinct du pool du pipeline, qui attend ces uploads ;
+     * sans file d'attente : un pool saturé ramène à un upload séquentiel.
+     */
+    @Bean
+    public AsyncTaskExecutor storageUploadExecutor(@Value("${storage.routing.hedge.threads:8}") int threads) {
+        if (virtualThreads) {
+            return virtualExecutor("storage-upload-", threads);
+        }
+        return boundedExecutor("storage-upload-", threads, 0);
+    }
+
+    /**
+     * Suppressions parallèles du ramasse-miettes du stockage, bornées à {@code storage.gc.threads} à la fois
+     */
+    @Bean
+    public AsyncTaskExecutor storageGcExecutor(
+            @Value("${storage.gc.threads:4}") int threads,
+            @Value("${storage.gc.batch-size:20}") int batchSize) {
+        if (virtualThreads) {
+            return virtualExecutor("storage-gc-", threads);
+        }
+        return boundedExecutor("storage-gc-", threads, batchSize);
+    }
+
+    /**
+     * Pool fixe ; file pleine (ou sans file) : la soumission lève RejectedExecutionException (AbortPolicy)
+     */
+    static ThreadPoolTaskExecutor boundedExecutor(String prefix, int threads, int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix(prefix);
+        return executor;
+    }
+
+    /**
+     * Un thread virtuel par tâche ; au-delà de {@code concurrencyLimit} tâches en cours, la soumission est rejetée
+     */
+    static SimpleAsyncTaskExecutor virtualExecutor(String prefix, int concurrencyLimit) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(prefix);
+        executor.setVirtualThreads(true);
+        executor.setConcurrencyLimit(concurrencyLimit);
+        executor.setRejectTasksWhenLimitReached(true);
+        return executor;
+    }
+}
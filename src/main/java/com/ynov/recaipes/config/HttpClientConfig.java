@@ -0,0 +1,99 @@
+package com.ynov.recaipes.config;
+
+import com.ynov.recaipes.service.OpenAIRateLimiter;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Clients HTTP : un seul pool de connexions keep-alive partagé, et un RestTemplate par cible
+ * (OpenAI texte, OpenAI images, bucket externe) avec ses propres délais.
+ */
+@Configuration
+public class HttpClientConfig {
+
+    @Value("${http.client.pool-timeout-ms:10000}")
+    private long poolTimeoutMs;
+
+    @Value("${http.client.keep-alive-seconds:30}")
+    private long keepAliveSeconds;
+
+    @Bean
+    public InstrumentedConnectionManager httpConnectionManager(
+            @Value("${http.client.max-total:100}") int maxTotal,
+            @Value("${http.client.max-per-route:20}") int maxPerRoute,
+            @Value("${http.client.connect-timeout-ms:5000}") long connectTimeoutMs,
+            @Value("${http.client.idle-eviction-seconds:30}") long idleEvictionSeconds) {
+        InstrumentedConnectionManager manager = new InstrumentedConnectionManager(TimeValue.ofSeconds(idleEvictionSeconds));
+        manager.setMaxTotal(maxTotal);
+        manager.setDefaultMaxPerRoute(maxPerRoute);
+        manager.setDefaultConnectionConfig(ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                .build());
+        return manager;
+    }
+
+    /**
+     * Client par défaut (téléchargement des images, appels divers)
+     */
+    @Bean
+    @Primary
+    public RestTemplate restTemplate(InstrumentedConnectionManager httpConnectionManager,
+                                     @Value("${http.client.read-timeout-seconds:30}") long readTimeoutSeconds) {
+        return pooledRestTemplate(httpConnectionManager, readTimeoutSeconds);
+    }
+
+    /**
+     * Chat completions : les réponses longues (et le streaming) justifient un délai de lecture élevé
+     */
+    @Bean
+    public RestTemplate openAiTextRestTemplate(InstrumentedConnectionManager httpConnectionManager,
+                                               OpenAIRateLimiter openAIRateLimiter,
+                                               @Value("${openai.http.text.read-timeout-seconds:120}") long readTimeoutSeconds,
+                                               @Value("${openai.rate-limit.chat.estimated-completion-tokens:1200}") long completionTokens) {
+        RestTemplate restTemplate = pooledRestTemplate(httpConnectionManager, readTimeoutSeconds);
+        restTemplate.getInterceptors().add(
+                new OpenAIRateLimitInterceptor(openAIRateLimiter, OpenAIRateLimiter.Api.CHAT, completionTokens));
+        return restTemplate;
+    }
+
+    @Bean
+    public RestTemplate openAiImageRestTemplate(InstrumentedConnectionManager httpConnectionManager,
+                                                OpenAIRateLimiter openAIRateLimiter,
+                                                @Value("${openai.http.image.read-timeout-seconds:90}") long readTimeoutSeconds) {
+        RestTemplate restTemplate = pooledRestTemplate(httpConnectionManager, readTimeoutSeconds);
+        restTemplate.getInterceptors().add(
+                new OpenAIRateLimitInterceptor(openAIRateLimiter, OpenAIRateLimiter.Api.IMAGES, 0));
+        return restTemplate;
+    }
+
+    @Bean
+    public RestTemplate bucketRestTemplate(InstrumentedConnectionManager httpConnectionManager,
+                                           @Value("${external.bucket.http.read-timeout-seconds:30}") long readTimeoutSeconds) {
+        return pooledRestTemplate(httpConnectionManager, readTimeoutSeconds);
+    }
+
+    private RestTemplate pooledRestTemplate(InstrumentedConnectionManager connectionManager, long readTimeoutSeconds) {
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setConnectionManagerShared(true)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(poolTimeoutMs))
+                        .setResponseTimeout(Timeout.ofSeconds(readTimeoutSeconds))
+                        // Sans en-tête Keep-Alive du serveur, une connexion inactive reste réutilisable ce temps-là
+                        .setConnectionKeepAlive(TimeValue.ofSeconds(keepAliveSeconds))
+                        .build())
+                .build();
+        return new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+    }
+}
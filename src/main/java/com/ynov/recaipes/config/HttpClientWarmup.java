@@ -0,0 +1,75 @@
+package com.ynov.recaipes.config;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.URI;
+import java.util.concurrent.Executor;
+
+/**
+ * Ouvre quelques connexions (TCP + TLS) vers OpenAI et le bucket au démarrage,
+ * pour que les premières générations ne paient pas le coût des handshakes.
+ */
+@Component
+public class HttpClientWarmup {
+
+    // Le pool est partagé : les connexions ouvertes ici servent aussi aux clients OpenAI et bucket,
+    // sans consommer le quota du limiteur OpenAI
+    private final RestTemplate restTemplate;
+    private final Executor applicationTaskExecutor;
+
+    @Value("${http.client.warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${http.client.warmup.connections:2}")
+    private int connections;
+
+    @Value("${openai.api.url.completions:https://api.openai.com/v1/chat/completions}")
+    private String completionsUrl;
+
+    @Value("${external.bucket.enabled:true}")
+    private boolean bucketEnabled;
+
+    @Value("${external.bucket.url:http://141.94.115.201}")
+    private String bucketBaseUrl;
+
+    public HttpClientWarmup(RestTemplate restTemplate,
+                            @Qualifier("applicationTaskExecutor") Executor applicationTaskExecutor) {
+        this.restTemplate = restTemplate;
+        this.applicationTaskExecutor = applicationTaskExecutor;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled) {
+            return;
+        }
+        warmUp(completionsUrl);
+        if (bucketEnabled && bucketBaseUrl != null && !bucketBaseUrl.isEmpty()) {
+            warmUp(bucketBaseUrl);
+        }
+    }
+
+    private void warmUp(String url) {
+        URI origin = URI.create(url).resolve("/");
+        // Requêtes simultanées : chacune ouvre sa propre connexion dans le pool
+        for (int i = 0; i < connections; i++) {
+            applicationTaskExecutor.execute(() -> {
+                try {
+                    restTemplate.execute(origin, HttpMethod.HEAD, null, response -> null);
+                } catch (RestClientResponseException e) {
+                    // Le statut importe peu : la connexion est établie et rendue au pool
+                } catch (Exception e) {
+                    System.err.println("⚠️ Préchauffage HTTP impossible pour " + origin + ": " + e.getMessage());
+                }
+            });
+        }
+        System.out.println("🔥 Préchauffage de " + connections + " connexion(s) vers " + origin);
+    }
+}
@@ -0,0 +1,106 @@
+package com.ynov.recaipes.config;
+
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.impl.IdleConnectionEvictor;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.io.ConnectionEndpoint;
+import org.apache.hc.client5.http.io.LeaseRequest;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool de connexions HTTP partagé par tous les RestTemplate.
+ * Mesure le temps d'attente pour obtenir une connexion et ferme les connexions inactives en tâche de fond.
+ */
+public class InstrumentedConnectionManager extends PoolingHttpClientConnectionManager {
+
+    private final IdleConnectionEvictor idleEvictor;
+
+    private final LongAdder leases = new LongAdder();
+    private final LongAdder leaseTimeouts = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public InstrumentedConnectionManager(TimeValue maxIdleTime) {
+        this.idleEvictor = new IdleConnectionEvictor(this, maxIdleTime);
+        this.idleEvictor.start();
+    }
+
+    @Override
+    public LeaseRequest lease(String id, HttpRoute route, Timeout requestTimeout, Object state) {
+        LeaseRequest delegate = super.lease(id, route, requestTimeout, state);
+        return new LeaseRequest() {
+            @Override
+            public ConnectionEndpoint get(Timeout timeout)
+                    throws InterruptedException, ExecutionException, TimeoutException {
+                long start = System.nanoTime();
+                try {
+                    ConnectionEndpoint endpoint = delegate.get(timeout);
+                    recordWait(System.nanoTime() - start);
+                    return endpoint;
+                } catch (TimeoutException e) {
+                    leaseTimeouts.increment();
+                    recordWait(System.nanoTime() - start);
+                    throw e;
+                }
+            }
+
+            @Override
+            public boolean cancel() {
+                return delegate.cancel();
+            }
+        };
+    }
+
+    private void recordWait(long nanos) {
+        leases.increment();
+        totalWaitNanos.add(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    @Override
+    public void close(CloseMode closeMode) {
+        idleEvictor.shutdown();
+        super.close(closeMode);
+    }
+
+    /**
+     * Occupation du pool (global et par hôte) et temps d'attente d'une connexion
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("total", toMap(getTotalStats()));
+
+        Map<String, Object> routes = new LinkedHashMap<>();
+        for (HttpRoute route : getRoutes()) {
+            routes.put(route.getTargetHost().toURI(), toMap(getStats(route)));
+        }
+        metrics.put("routes", routes);
+
+        long count = leases.sum();
+        metrics.put("leases", count);
+        metrics.put("leaseTimeouts", leaseTimeouts.sum());
+        metrics.put("averageWaitMs", count == 0 ? 0.0 : totalWaitNanos.sum() / (double) count / 1_000_000);
+        metrics.put("maxWaitMs", TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()));
+        return metrics;
+    }
+
+    private static Map<String, Object> toMap(PoolStats stats) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("leased", stats.getLeased());
+        map.put("available", stats.getAvailable());
+        map.put("pending", stats.getPending());
+        map.put("max", stats.getMax());
+        return map;
+    }
+}
@@ -1,15 +0,0 @@
-package com.ynov.recaipes.config;
-
-import org.springframework.context.annotation.Bean;
-import org.springframework.context.annotation.Configuration;
-import org.springframework.context.annotation.Primary;
-import org.springframework.web.client.RestTemplate;
-
-@Configuration
-public class OpenAIConfig {
-    @Bean
-    @Primary
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
-    }
-}
\ No newline at end of file
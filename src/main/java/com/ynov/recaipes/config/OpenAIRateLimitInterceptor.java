@@ -0,0 +1,49 @@
+package com.ynov.recaipes.config;
+
+import com.ynov.recaipes.service.OpenAIRateLimiter;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Fait passer chaque appel OpenAI par le limiteur partagé et lui transmet les en-têtes de quota de la réponse.
+ * La complétion est estimée par le {@code max_tokens} de la requête s'il est présent, sinon par l'estimation fixe.
+ */
+public class OpenAIRateLimitInterceptor implements ClientHttpRequestInterceptor {
+
+    // Approximation usuelle : ~4 caractères par token
+    private static final int BYTES_PER_TOKEN = 4;
+    private static final Pattern MAX_TOKENS = Pattern.compile("\"max_tokens\"\\s*:\\s*(\\d+)");
+
+    private final OpenAIRateLimiter rateLimiter;
+    private final OpenAIRateLimiter.Api api;
+    private final long estimatedCompletionTokens;
+
+    public OpenAIRateLimitInterceptor(OpenAIRateLimiter rateLimiter, OpenAIRateLimiter.Api api, long estimatedCompletionTokens) {
+        this.rateLimiter = rateLimiter;
+        this.api = api;
+        this.estimatedCompletionTokens = estimatedCompletionTokens;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        rateLimiter.acquire(api, body.length / BYTES_PER_TOKEN + completionTokens(body));
+        ClientHttpResponse response = execution.execute(request, body);
+        rateLimiter.onResponse(api, response.getStatusCode().value(), response.getHeaders());
+        return response;
+    }
+
+    private long completionTokens(byte[] body) {
+        if (estimatedCompletionTokens == 0) {
+            return 0;
+        }
+        Matcher matcher = MAX_TOKENS.matcher(new String(body, StandardCharsets.UTF_8));
+        return matcher.find() ? Long.parseLong(matcher.group(1)) : estimatedCompletionTokens;
+    }
+}
@@ -0,0 +1,13 @@
+package com.ynov.recaipes.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Active les tâches périodiques (@Scheduled), exécutées par le planificateur configuré par Spring Boot
+ * (spring.task.scheduling.*)
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
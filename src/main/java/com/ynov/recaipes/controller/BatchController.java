@@ -1,14 +1,17 @@
 package com.ynov.recaipes.controller;
 
-import com.ynov.recaipes.model.Recipe;
 import com.ynov.recaipes.service.BatchRecipeGenerationService;
+import com.ynov.recaipes.service.GenerationJobService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URI;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/recipes/batch")
@@ -16,6 +19,7 @@ import java.util.concurrent.CompletableFuture;
 public class BatchController {
 
     private final BatchRecipeGenerationService batchService;
+    private final GenerationJobService generationJobService;
 
     /**
      * Génère un menu complet (entrée, plat, dessert)
@@ -23,30 +27,19 @@ public class BatchController {
     @PostMapping("/menu")
     public ResponseEntity<Map<String, Object>> generateMenu(@RequestBody MenuRequest request) {
         try {
-            // Créer un nouvel ID de tâche
-            String jobId = BatchStatusController.createNewJob();
-
-            // Démarrer la génération de manière asynchrone
-            CompletableFuture<List<Recipe>> future = batchService.generateCompleteMenu(
-                    request.getUserName(),
-                    request.getTheme()
-            );
-
-            // Mettre à jour la progression pendant la génération
-            future.thenAccept(recipes -> {
-                BatchStatusController.completeJob(jobId, "Menu généré avec succès");
-            }).exceptionally(e -> {
-                BatchStatusController.failJob(jobId, e.getMessage());
-                return null;
-            });
-
-            return ResponseEntity.ok(Map.of(
+            // La génération s'exécute sur le pool des tâches, suivie via /api/recipes/batch/status/{jobId}
+            String jobId = generationJobService.submit("menu",
+                    id -> batchService.generateCompleteMenu(id, request.getUserName(), request.getTheme()));
+
+            return accepted(jobId, Map.of(
                     "success", true,
                     "message", "Génération du menu démarrée",
                     "type", "menu",
                     "theme", request.getTheme(),
                     "jobId", jobId
             ));
+        } catch (RejectedExecutionException e) {
+            return queueFull();
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of(
                     "success", false,
@@ -61,19 +54,19 @@ public class BatchController {
     @PostMapping("/theme")
     public ResponseEntity<Map<String, Object>> generateByTheme(@RequestBody ThemeRequest request) {
         try {
-            CompletableFuture<List<Recipe>> future = batchService.generateThemeRecipes(
-                    request.getUserName(),
-                    request.getTheme(),
-                    request.getCount()
-            );
+            String jobId = generationJobService.submit("theme",
+                    id -> batchService.generateThemeRecipes(id, request.getUserName(), request.getTheme(), request.getCount()));
 
-            return ResponseEntity.ok(Map.of(
+            return accepted(jobId, Map.of(
                     "success", true,
                     "message", "Génération par thème démarrée",
                     "type", "theme",
                     "theme", request.getTheme(),
-                    "count", request.getCount()
+                    "count", request.getCount(),
+                    "jobId", jobId
             ));
+        } catch (RejectedExecutionException e) {
+            return queueFull();
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of(
                     "success", false,
@@ -88,17 +81,18 @@ public class BatchController {
     @PostMapping("/custom")
     public ResponseEntity<Map<String, Object>> generateCustom(@RequestBody CustomRequest request) {
         try {
-            CompletableFuture<List<Recipe>> future = batchService.generateCustomRecipes(
-                    request.getUserName(),
-                    request.getDishes()
-            );
+            String jobId = generationJobService.submit("custom",
+                    id -> batchService.generateCustomRecipes(id, request.getUserName(), request.getDishes()));
 
-            return ResponseEntity.ok(Map.of(
+            return accepted(jobId, Map.of(
                     "success", true,
                     "message", "Génération personnalisée démarrée",
                     "type", "custom",
-                    "dishCount", request.getDishes().size()
+                    "dishCount", request.getDishes().size(),
+                    "jobId", jobId
             ));
+        } catch (RejectedExecutionException e) {
+            return queueFull();
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of(
                     "success", false,
@@ -107,6 +101,21 @@ public class BatchController {
         }
     }
 
+    private static ResponseEntity<Map<String, Object>> accepted(String jobId, Map<String, Object> body) {
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/recipes/batch/status/" + jobId))
+                .body(body);
+    }
+
+    static ResponseEntity<Map<String, Object>> queueFull() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "30")
+                .body(Map.of(
+                        "success", false,
+                        "error", "File de génération pleine, réessayez plus tard"
+                ));
+    }
+
     // DTOs pour les requêtes
     public static class MenuRequest {
         private String userName;
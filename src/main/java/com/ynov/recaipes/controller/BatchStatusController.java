@@ -3,45 +3,80 @@ package com.ynov.recaipes.controller;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 
 @RestController
-@RequestMapping("/api/recipes/batch")
+@RequestMapping("/api/recipes")
 @RequiredArgsConstructor
 public class BatchStatusController {
 
+    private static final long MAX_WAIT_SECONDS = 60;
+    private static final long FINISHED_JOB_RETENTION_MS = TimeUnit.HOURS.toMillis(1);
+
     // Stockage en mémoire des statuts des tâches (dans un vrai système, utilisez Redis ou une BDD)
     private static final ConcurrentHashMap<String, JobStatus> jobStatuses = new ConcurrentHashMap<>();
 
     /**
-     * Endpoint pour récupérer le statut d'une tâche
+     * Endpoint pour récupérer le statut d'une tâche (batch ou recette unique).
+     * Avec {@code waitSeconds}, la réponse est différée jusqu'à la fin de la tâche (long polling, 60 s max)
+     * sans bloquer de thread Tomcat.
      */
-    @GetMapping("/status/{jobId}")
-    public ResponseEntity<Map<String, Object>> getJobStatus(@PathVariable String jobId) {
+    @GetMapping({"/batch/status/{jobId}", "/jobs/{jobId}"})
+    public DeferredResult<ResponseEntity<Map<String, Object>>> getJobStatus(
+            @PathVariable String jobId,
+            @RequestParam(defaultValue = "0") long waitSeconds) {
         JobStatus status = jobStatuses.get(jobId);
 
+        if (status == null || waitSeconds <= 0 || status.isFinished()) {
+            DeferredResult<ResponseEntity<Map<String, Object>>> result = new DeferredResult<>();
+            result.setResult(toResponse(jobId, status));
+            return result;
+        }
+
+        long timeoutMs = TimeUnit.SECONDS.toMillis(Math.min(waitSeconds, MAX_WAIT_SECONDS));
+        DeferredResult<ResponseEntity<Map<String, Object>>> result =
+                new DeferredResult<>(timeoutMs, () -> toResponse(jobId, status));
+        status.getDone().whenComplete((v, e) -> result.setResult(toResponse(jobId, status)));
+        return result;
+    }
+
+    private static ResponseEntity<Map<String, Object>> toResponse(String jobId, JobStatus status) {
         if (status == null) {
             return ResponseEntity.notFound().build();
         }
 
-        return ResponseEntity.ok(Map.of(
-                "jobId", jobId,
-                "status", status.getStatus(),
-                "progress", status.getProgress(),
-                "message", status.getMessage(),
-                "error", status.getError() != null ? status.getError() : ""
-        ));
+        Map<String, Object> body = new HashMap<>();
+        body.put("jobId", jobId);
+        body.put("type", status.getType());
+        body.put("status", status.getStatus());
+        body.put("progress", status.getProgress());
+        body.put("message", status.getMessage());
+        body.put("error", status.getError() != null ? status.getError() : "");
+        body.put("recipeIds", new ArrayList<>(status.getRecipeIds()));
+        return ResponseEntity.ok(body);
     }
 
     /**
      * Méthode utilitaire pour créer une nouvelle tâche
      */
     public static String createNewJob() {
+        return createNewJob("batch");
+    }
+
+    public static String createNewJob(String type) {
+        purgeFinishedJobs();
         String jobId = UUID.randomUUID().toString();
-        jobStatuses.put(jobId, new JobStatus("running", 0, "Démarrage de la génération...", null));
+        jobStatuses.put(jobId, new JobStatus(type, "running", 0, "Démarrage de la génération...", null));
         return jobId;
     }
 
@@ -49,22 +84,33 @@ public class BatchStatusController {
      * Méthode utilitaire pour mettre à jour le statut d'une tâche
      */
     public static void updateJobProgress(String jobId, int progress, String message) {
-        JobStatus status = jobStatuses.get(jobId);
+        JobStatus status = jobId != null ? jobStatuses.get(jobId) : null;
         if (status != null) {
             status.setProgress(progress);
             status.setMessage(message);
         }
     }
 
+    /**
+     * Méthode utilitaire pour ajouter une recette générée au résultat d'une tâche
+     */
+    public static void addJobResult(String jobId, Long recipeId) {
+        JobStatus status = jobId != null ? jobStatuses.get(jobId) : null;
+        if (status != null) {
+            status.getRecipeIds().add(recipeId);
+        }
+    }
+
     /**
      * Méthode utilitaire pour terminer une tâche
      */
     public static void completeJob(String jobId, String message) {
-        JobStatus status = jobStatuses.get(jobId);
+        JobStatus status = jobId != null ? jobStatuses.get(jobId) : null;
         if (status != null) {
             status.setStatus("completed");
             status.setProgress(100);
             status.setMessage(message);
+            status.finish();
         }
     }
 
@@ -72,30 +118,54 @@ public class BatchStatusController {
      * Méthode utilitaire pour marquer une tâche en erreur
      */
     public static void failJob(String jobId, String error) {
-        JobStatus status = jobStatuses.get(jobId);
+        JobStatus status = jobId != null ? jobStatuses.get(jobId) : null;
         if (status != null) {
             status.setStatus("error");
             status.setError(error);
+            status.finish();
         }
     }
 
+    private static void purgeFinishedJobs() {
+        long limit = System.currentTimeMillis() - FINISHED_JOB_RETENTION_MS;
+        jobStatuses.values().removeIf(s -> s.isFinished() && s.getFinishedAt() < limit);
+    }
+
     /**
      * Classe interne pour représenter le statut d'une tâche
      */
     static class JobStatus {
-        private String status; // running, completed, error
-        private int progress;  // 0-100
-        private String message;
-        private String error;
-
-        public JobStatus(String status, int progress, String message, String error) {
+        private final String type; // recipe, menu, theme, custom
+        private volatile String status; // running, completed, error
+        private volatile int progress;  // 0-100
+        private volatile String message;
+        private volatile String error;
+        private volatile long finishedAt;
+        private final List<Long> recipeIds = new CopyOnWriteArrayList<>();
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        public JobStatus(String type, String status, int progress, String message, String error) {
+            this.type = type;
             this.status = status;
             this.progress = progress;
             this.message = message;
             this.error = error;
         }
 
+        void finish() {
+            finishedAt = System.currentTimeMillis();
+            done.complete(null);
+        }
+
+        boolean isFinished() { return done.isDone(); }
+
+        long getFinishedAt() { return finishedAt; }
+
+        CompletableFuture<Void> getDone() { return done; }
+
         // Getters et Setters
+        public String getType() { return type; }
+
         public String getStatus() { return status; }
         public void setStatus(String status) { this.status = status; }
 
@@ -107,5 +177,7 @@ public class BatchStatusController {
 
         public String getError() { return error; }
         public void setError(String error) { this.error = error; }
+
+        public List<Long> getRecipeIds() { return recipeIds; }
     }
-}
\ No newline at end of file
+}
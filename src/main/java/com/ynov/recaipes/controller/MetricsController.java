@@ -0,0 +1,59 @@
+package com.ynov.recaipes.controller;
+
+import com.ynov.recaipes.config.InstrumentedConnectionManager;
+import com.ynov.recaipes.service.ExternalBucketProvider;
+import com.ynov.recaipes.service.LocalStorageProvider;
+import com.ynov.recaipes.service.OpenAIRateLimiter;
+import com.ynov.recaipes.service.OpenAIResilience;
+import com.ynov.recaipes.service.StorageGarbageCollector;
+import com.ynov.recaipes.service.StorageRouter;
+import com.ynov.recaipes.service.UploadOutboxService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/metrics")
+@RequiredArgsConstructor
+public class MetricsController {
+
+    private final InstrumentedConnectionManager httpConnectionManager;
+    private final OpenAIRateLimiter openAIRateLimiter;
+    private final OpenAIResilience openAIResilience;
+    private final ExternalBucketProvider externalBucketProvider;
+    private final StorageRouter storageRouter;
+    private final UploadOutboxService uploadOutboxService;
+    private final StorageGarbageCollector storageGarbageCollector;
+    private final LocalStorageProvider localStorageProvider;
+
+    /**
+     * Métriques techniques, une entrée par composant :
+     * <ul>
+     *   <li>{@code httpPool} : occupation du pool HTTP et attente d'une connexion ;</li>
+     *   <li>{@code openAiRateLimit} : quota OpenAI ;</li>
+     *   <li>{@code openAiResilience} : relances et requêtes doublées ;</li>
+     *   <li>{@code externalBucket} : santé du bucket externe ;</li>
+     *   <li>{@code storageRouting} : routage du stockage ;</li>
+     *   <li>{@code uploadOutbox} : uploads en attente ;</li>
+     *   <li>{@code storageGc} : suppression des fichiers orphelins et des pierres tombales ;</li>
+     *   <li>{@code localStorage} : déduplication et fsync du stockage local.</li>
+     * </ul>
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getMetrics() {
+        return ResponseEntity.ok(Map.of(
+                "httpPool", httpConnectionManager.getMetrics(),
+                "openAiRateLimit", openAIRateLimiter.getStats(),
+                "openAiResilience", openAIResilience.getStats(),
+                "externalBucket", externalBucketProvider.getHealth(),
+                "storageRouting", storageRouter.getStats(),
+                "uploadOutbox", uploadOutboxService.getStats(),
+                "storageGc", storageGarbageCollector.getStats(),
+                "localStorage", localStorageProvider.getStats()
+        ));
+    }
+}
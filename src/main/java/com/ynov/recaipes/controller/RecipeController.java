@@ -3,13 +3,22 @@ package com.ynov.recaipes.controller;
 import com.ynov.recaipes.dto.RecipeRequest;
 import com.ynov.recaipes.dto.RecipeResponse;
 import com.ynov.recaipes.model.Recipe;
+import com.ynov.recaipes.service.GenerationJobService;
 import com.ynov.recaipes.service.RecipeService;
+import com.ynov.recaipes.service.RecipeStreamListener;
+import com.ynov.recaipes.service.StorageService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.net.URI;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
 
 @RestController
@@ -17,7 +26,12 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class RecipeController {
 
+    private static final long STREAM_TIMEOUT_MS = 5 * 60 * 1000L;
+
     private final RecipeService recipeService;
+    private final GenerationJobService generationJobService;
+    private final StorageService storageService;
+    private final Executor recipeStreamExecutor;
 
 
     /**
@@ -30,6 +44,72 @@ public class RecipeController {
     }
 
 
+    /**
+     * Soumettre une génération sans attendre : 202 Accepted avec l'identifiant de la tâche.
+     * Le résultat se consulte via GET /api/recipes/jobs/{jobId}?waitSeconds=30 (long polling).
+     */
+    @PostMapping("/async")
+    public ResponseEntity<Map<String, Object>> generateRecipeAsync(@RequestBody RecipeRequest request) {
+        try {
+            String jobId = generationJobService.submitRecipe(request);
+            String statusUrl = "/api/recipes/jobs/" + jobId;
+            return ResponseEntity.accepted()
+                    .location(URI.create(statusUrl))
+                    .body(Map.of(
+                            "jobId", jobId,
+                            "status", "running",
+                            "statusUrl", statusUrl
+                    ));
+        } catch (RejectedExecutionException e) {
+            return BatchController.queueFull();
+        }
+    }
+
+
+    /**
+     * Générer une recette en streaming (text/event-stream) :
+     * fragments de texte, sections détectées, puis la recette persistée avec l'URL du PDF.
+     * Les flux ont leur propre pool borné ({@code recipe.stream.max-concurrent}) : au-delà, un événement
+     * "error" est renvoyé immédiatement.
+     */
+    @PostMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter generateRecipeStream(@RequestBody RecipeRequest request) {
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MS);
+        SseRecipeListener listener = new SseRecipeListener(emitter);
+
+        if (request.getDishName() == null || request.getDishName().isBlank()) {
+            listener.send("error", Map.of("message", "Le nom du plat est obligatoire"));
+            emitter.complete();
+            return emitter;
+        }
+
+        try {
+            recipeStreamExecutor.execute(() -> streamRecipe(request, emitter, listener));
+        } catch (RejectedExecutionException e) {
+            listener.send("error", Map.of("message", "Trop de générations en cours, réessayez plus tard"));
+            emitter.complete();
+        }
+        return emitter;
+    }
+
+    private void streamRecipe(RecipeRequest request, SseEmitter emitter, SseRecipeListener listener) {
+        try {
+            listener.send("start", Map.of("dishName", request.getDishName()));
+            Recipe recipe = recipeService.generateRecipeStreaming(request, listener);
+            listener.send("recipe", Map.of(
+                    "id", recipe.getId(),
+                    "title", recipe.getTitle(),
+                    "imageUrl", recipe.getImageUrl() != null ? storageService.toPublicUrl(recipe.getImageUrl()) : "",
+                    "pdfUrl", recipe.getPdfUrl() != null ? storageService.toPublicUrl(recipe.getPdfUrl()) : ""
+            ));
+        } catch (Throwable e) {
+            listener.send("error", Map.of("message", e.getMessage() != null ? e.getMessage() : "Erreur inconnue"));
+        } finally {
+            // toujours fermer le flux, sinon le client reste suspendu jusqu'au timeout
+            emitter.complete();
+        }
+    }
+
     /**
      * Obtenir toutes les recettes
      */
@@ -124,6 +204,45 @@ public class RecipeController {
         }
     }
 
+    /**
+     * Relaye les événements de génération vers le client SSE.
+     * Si le client se déconnecte, la génération continue et la recette est tout de même persistée.
+     */
+    private static class SseRecipeListener implements RecipeStreamListener {
+        private final SseEmitter emitter;
+        private volatile boolean disconnected;
+
+        SseRecipeListener(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        @Override
+        public void onToken(String token) {
+            send("token", Map.of("text", token));
+        }
+
+        @Override
+        public void onSection(String section) {
+            send("section", Map.of("name", section));
+        }
+
+        @Override
+        public void onTitle(String title) {
+            send("title", Map.of("title", title));
+        }
+
+        void send(String eventName, Object data) {
+            if (disconnected) {
+                return;
+            }
+            try {
+                emitter.send(SseEmitter.event().name(eventName).data(data, MediaType.APPLICATION_JSON));
+            } catch (IOException | IllegalStateException e) {
+                disconnected = true;
+            }
+        }
+    }
+
     /**
      * Mapper une entité Recipe vers RecipeResponse
      */
@@ -134,8 +253,8 @@ public class RecipeController {
                 .description(recipe.getDescription())
                 .ingredients(recipe.getIngredients())
                 .instructions(recipe.getInstructions())
-                .imageUrl(recipe.getImageUrl())
-                .pdfUrl(recipe.getPdfUrl())
+                .imageUrl(storageService.toPublicUrl(recipe.getImageUrl()))
+                .pdfUrl(storageService.toPublicUrl(recipe.getPdfUrl()))
                 .createdBy(recipe.getCreatedBy())
                 .createdAt(recipe.getCreatedAt())
                 .build();
@@ -0,0 +1,15 @@
+package com.ynov.recaipes.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ParsedRecipe {
+    private String title;
+    private String description;
+    private String ingredients;
+    private String instructions;
+}
@@ -0,0 +1,49 @@
+package com.ynov.recaipes.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recette renvoyée par l'API en mode "structured output" (response_format json_schema)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class StructuredRecipe {
+    // Numéro du plat dans une complétion groupée (absent pour une recette seule)
+    private Integer dishNumber;
+    private String title;
+    private String description;
+    private List<String> ingredients = new ArrayList<>();
+    private List<String> steps = new ArrayList<>();
+
+    /**
+     * Met en forme les listes comme le texte libre historique (puces pour les ingrédients, étapes numérotées)
+     */
+    public ParsedRecipe toParsedRecipe() {
+        StringBuilder ingredientsText = new StringBuilder();
+        for (String ingredient : ingredients) {
+            if (ingredient != null && !ingredient.isBlank()) {
+                ingredientsText.append("- ").append(ingredient.trim()).append('\n');
+            }
+        }
+        StringBuilder instructionsText = new StringBuilder();
+        int number = 1;
+        for (String step : steps) {
+            if (step != null && !step.isBlank()) {
+                instructionsText.append(number++).append(". ").append(step.trim()).append('\n');
+            }
+        }
+        return new ParsedRecipe(
+                title == null ? "" : title.trim(),
+                description == null ? "" : description.trim(),
+                ingredientsText.toString().trim(),
+                instructionsText.toString().trim());
+    }
+}
@@ -0,0 +1,20 @@
+package com.ynov.recaipes.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Plusieurs recettes renvoyées par une seule complétion (menu, thème)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class StructuredRecipeCollection {
+    private List<StructuredRecipe> recipes = new ArrayList<>();
+}
@@ -25,6 +25,10 @@ public class PdfMetadata {
     
     private String localPath;
     
+    // SHA-256 du PDF, calculé à l'écriture (ETag de GET /api/recipes/{id}/pdf)
+    @Column(length = 64)
+    private String contentHash;
+    
     @OneToOne
     private Recipe recipe;
     
@@ -0,0 +1,61 @@
+package com.ynov.recaipes.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Fichier à supprimer du stockage après la suppression d'une recette.
+ * La requête ne fait qu'inscrire la pierre tombale, {@code StorageGarbageCollector} supprime le fichier ensuite.
+ */
+@Entity
+@Table(name = "storage_tombstone", indexes = @Index(name = "idx_storage_tombstone_due", columnList = "status, nextAttemptAt"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StorageTombstone {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(length = 1000, nullable = false)
+    private String url;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status = Status.PENDING;
+
+    private int attempts;
+
+    private LocalDateTime nextAttemptAt;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    @Column(updatable = false)
+    private LocalDateTime createdAt;
+
+    private LocalDateTime completedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        if (nextAttemptAt == null) {
+            nextAttemptAt = createdAt;
+        }
+    }
+
+    public StorageTombstone(String url) {
+        this.url = url;
+    }
+
+    public enum Status {
+        PENDING,  // à supprimer
+        DONE,     // supprimé
+        SKIPPED,  // fichier de nouveau référencé (copie d'une recette en cache) : conservé
+        FAILED    // abandonné après le nombre maximal de tentatives
+    }
+}
@@ -0,0 +1,45 @@
+package com.ynov.recaipes.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Objet envoyé vers un provider de stockage : URL publique et identifiant natif du provider
+ * (ID serveur du bucket externe, clé S3...), renseignés à l'upload pour que la suppression soit un seul appel.
+ */
+@Entity
+@Table(name = "stored_object", indexes = @Index(name = "idx_stored_object_url", columnList = "url"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoredObject {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(length = 1000, nullable = false)
+    private String url;
+
+    private String provider;
+
+    @Column(length = 1000)
+    private String nativeId;
+
+    @Column(updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+
+    public StoredObject(String url, String provider, String nativeId) {
+        this.url = url;
+        this.provider = provider;
+        this.nativeId = nativeId;
+    }
+}
@@ -0,0 +1,74 @@
+package com.ynov.recaipes.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Upload distant en attente : le PDF est déjà enregistré localement sous {@code provisionalUrl},
+ * le drainer l'envoie vers le stockage distant puis remplace l'URL provisoire dans les recettes.
+ */
+@Entity
+@Table(name = "upload_outbox", indexes = @Index(name = "idx_upload_outbox_due", columnList = "status, nextAttemptAt"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadOutboxEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long recipeId;
+
+    @Column(length = 1000, nullable = false)
+    private String localPath;
+
+    private String contentType;
+
+    // Tags de l'upload (JSON)
+    @Column(length = 2000)
+    private String tags;
+
+    @Column(length = 1000, nullable = false)
+    private String provisionalUrl;
+
+    // Renseignés dès que l'upload a réussi, avant le remplacement de l'URL provisoire
+    @Column(length = 1000)
+    private String remoteUrl;
+
+    private String remoteId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status = Status.PENDING;
+
+    private int attempts;
+
+    private LocalDateTime nextAttemptAt;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    @Column(updatable = false)
+    private LocalDateTime createdAt;
+
+    private LocalDateTime completedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        if (nextAttemptAt == null) {
+            nextAttemptAt = createdAt;
+        }
+    }
+
+    public enum Status {
+        PENDING,   // à envoyer (ou URL à remplacer)
+        DONE,      // URL distante en place
+        FAILED,    // abandonné après le nombre maximal de tentatives : l'URL locale reste en place
+        CANCELLED  // recette supprimée avant l'upload
+    }
+}
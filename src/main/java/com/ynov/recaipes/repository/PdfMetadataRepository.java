@@ -2,9 +2,22 @@ package com.ynov.recaipes.repository;
 
 import com.ynov.recaipes.model.PdfMetadata;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface PdfMetadataRepository extends JpaRepository<PdfMetadata, Long> {
     PdfMetadata findByRecipeId(Long recipeId);
+    boolean existsByS3Url(String s3Url);
+    List<PdfMetadata> findByS3Url(String s3Url);
+    boolean existsByLocalPath(String localPath);
+    PdfMetadata findFirstByLocalPath(String localPath);
+
+    @Query("select p.localPath from PdfMetadata p where p.localPath is not null")
+    List<String> findAllLocalPaths();
+
+    @Query("select p.s3Url from PdfMetadata p where p.s3Url like 'file://%'")
+    List<String> findLocalS3Urls();
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package com.ynov.recaipes.repository;
 
 import com.ynov.recaipes.model.Recipe;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -9,4 +10,13 @@ import java.util.List;
 @Repository
 public interface RecipeRepository extends JpaRepository<Recipe, Long> {
     List<Recipe> findByCreatedByOrderByCreatedAtDesc(String userName);
+    boolean existsByPdfUrl(String pdfUrl);
+    List<Recipe> findByPdfUrl(String pdfUrl);
+    boolean existsByImageUrl(String imageUrl);
+
+    @Query("select r.pdfUrl from Recipe r where r.pdfUrl like 'file://%'")
+    List<String> findLocalPdfUrls();
+
+    @Query("select r.imageUrl from Recipe r where r.imageUrl like 'file://%'")
+    List<String> findLocalImageUrls();
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.ynov.recaipes.repository;
+
+import com.ynov.recaipes.model.StorageTombstone;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface StorageTombstoneRepository extends JpaRepository<StorageTombstone, Long> {
+    List<StorageTombstone> findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(
+            StorageTombstone.Status status, LocalDateTime now, Pageable pageable);
+    long countByStatus(StorageTombstone.Status status);
+}
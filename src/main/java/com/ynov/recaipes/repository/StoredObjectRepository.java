@@ -0,0 +1,12 @@
+package com.ynov.recaipes.repository;
+
+import com.ynov.recaipes.model.StoredObject;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface StoredObjectRepository extends JpaRepository<StoredObject, Long> {
+    Optional<StoredObject> findFirstByUrlOrderByIdDesc(String url);
+}
@@ -1,84 +1,153 @@
 package com.ynov.recaipes.service;
 
 import com.ynov.recaipes.controller.BatchStatusController;
+import com.ynov.recaipes.dto.ParsedRecipe;
 import com.ynov.recaipes.dto.RecipeRequest;
 import com.ynov.recaipes.model.Recipe;
 import lombok.RequiredArgsConstructor;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Service
 @RequiredArgsConstructor
 public class BatchRecipeGenerationService {
 
     private final RecipeService recipeService;
+    private final OpenAIService openAIService;
+    private final Executor recipeBatchItemExecutor;
+
+    @Value("${recipe.batch.concurrency:3}")
+    private int batchConcurrency;
+
+    @Value("${recipe.batch.single-completion.enabled:true}")
+    private boolean singleCompletionEnabled;
 
     /**
-     * Génère plusieurs recettes en chaîne de façon asynchrone
+     * Génère les recettes d'un batch, au plus {@code recipe.batch.concurrency} à la fois :
+     * pendant que la recette i attend DALL·E, la recette i+1 est déjà en génération de texte.
+     * Appelé depuis le pool de {@link GenerationJobService}, qui marque la tâche comme terminée ou en erreur.
+     * Les recettes sont retournées dans l'ordre du batch.
      */
-    @Async
-    public CompletableFuture<List<Recipe>> generateRecipeBatch(BatchGenerationRequest request) {
-        List<Recipe> generatedRecipes = new ArrayList<>();
+    public List<Recipe> generateRecipeBatch(BatchGenerationRequest request) {
         String jobId = request.getJobId();
+        List<RecipeRequest> recipeRequests = request.getRecipeRequests();
+        int total = recipeRequests.size();
+        Semaphore permits = new Semaphore(Math.max(1, batchConcurrency));
+        AtomicInteger completed = new AtomicInteger();
+        AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+        List<CompletableFuture<Recipe>> futures = new ArrayList<>(total);
+
+        System.out.println("Démarrage de la génération de " + total + " recettes (" +
+                Math.max(1, batchConcurrency) + " en parallèle)");
+        List<ParsedRecipe> texts = request.isSingleCompletion() && singleCompletionEnabled
+                ? generateTextsInOneCompletion(jobId, recipeRequests)
+                : List.of();
 
         try {
-            System.out.println("Démarrage de la génération en chaîne de " +
-                    request.getRecipeRequests().size() + " recettes");
-
-            for (int i = 0; i < request.getRecipeRequests().size(); i++) {
-                RecipeRequest recipeRequest = request.getRecipeRequests().get(i);
-
-                // Calculer et mettre à jour la progression
-                int progress = (i * 100) / request.getRecipeRequests().size();
-                BatchStatusController.updateJobProgress(jobId, progress,
-                        "Génération de la recette " + (i + 1) + "/" +
-                                request.getRecipeRequests().size());
+            for (int i = 0; i < total; i++) {
+                permits.acquire();
+                if (firstFailure.get() != null) {
+                    // Une recette a échoué : on ne lance pas les suivantes
+                    permits.release();
+                    break;
+                }
 
-                System.out.println("Génération de la recette " + (i + 1) + "/" +
-                        request.getRecipeRequests().size() + " : " +
+                RecipeRequest recipeRequest = recipeRequests.get(i);
+                ParsedRecipe text = i < texts.size() ? texts.get(i) : null;
+                int position = i + 1;
+                System.out.println("Génération de la recette " + position + "/" + total + " : " +
                         recipeRequest.getDishName());
 
-                // Générer la recette
-                Recipe recipe = recipeService.generateRecipe(recipeRequest);
-
-                // Ajouter les tags spécifiques au batch
-                recipe.addTag("tag1", request.getBatchType(), "Type de batch");
-                recipe.addTag("tag2", "batch-" + request.getBatchId(), "ID du batch");
-                recipe.addTag("tag3", String.valueOf(i + 1), "Position dans le batch");
-
-                generatedRecipes.add(recipe);
-
-                // Délai entre les générations pour éviter la surcharge de l'API
-                if (i < request.getRecipeRequests().size() - 1) {
-                    Thread.sleep(TimeUnit.SECONDS.toMillis(request.getDelayBetweenRequests()));
+                CompletableFuture<Recipe> future;
+                try {
+                    // Le débit vers OpenAI est régulé par OpenAIRateLimiter, sans pause fixe
+                    future = CompletableFuture.supplyAsync(
+                            () -> generateItem(request, recipeRequest, position, text),
+                            recipeBatchItemExecutor);
+                } catch (RejectedExecutionException e) {
+                    permits.release();
+                    throw e;
                 }
+                futures.add(future.whenComplete((recipe, error) -> {
+                    // L'échec est enregistré avant de libérer la place, pour que la boucle le voie
+                    if (error != null) {
+                        firstFailure.compareAndSet(null, error);
+                    } else {
+                        int done = completed.incrementAndGet();
+                        BatchStatusController.updateJobProgress(jobId, (done * 100) / total,
+                                done + "/" + total + " recettes générées");
+                    }
+                    permits.release();
+                }));
             }
 
-            System.out.println("Génération en chaîne terminée avec succès ! " +
-                    generatedRecipes.size() + " recettes créées");
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).exceptionally(e -> null).join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(f -> f.cancel(true));
+            throw new RuntimeException("Batch generation interrupted", e);
+        } catch (Exception e) {
+            System.err.println("Erreur lors de la génération en chaîne : " + e.getMessage());
+            throw new RuntimeException("Batch generation failed: " + e.getMessage(), e);
+        }
 
-            // Marquer la tâche comme terminée
-            BatchStatusController.completeJob(jobId, "Génération terminée avec succès");
+        Throwable failure = firstFailure.get();
+        if (failure != null) {
+            Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+            System.err.println("Erreur lors de la génération en chaîne : " + cause.getMessage());
+            throw new RuntimeException("Batch generation failed: " + cause.getMessage(), cause);
+        }
+
+        List<Recipe> generatedRecipes = futures.stream().map(CompletableFuture::join).toList();
+        System.out.println("Génération en chaîne terminée avec succès ! " +
+                generatedRecipes.size() + " recettes créées");
+        return generatedRecipes;
+    }
 
+    /**
+     * Textes de toutes les recettes du batch en une seule complétion.
+     * Un plat sans texte (omis par le modèle, numéro manquant ou ambigu) a sa propre génération de texte,
+     * de même que tous les plats si l'appel échoue.
+     */
+    private List<ParsedRecipe> generateTextsInOneCompletion(String jobId, List<RecipeRequest> recipeRequests) {
+        BatchStatusController.updateJobProgress(jobId, 0, "Génération des textes en une seule requête");
+        try {
+            List<ParsedRecipe> texts = openAIService.generateRecipeCollection(
+                    recipeRequests.stream().map(RecipeRequest::getDishName).toList());
+            long matched = texts.stream().filter(Objects::nonNull).count();
+            System.out.println("📝 " + matched + "/" + recipeRequests.size() + " textes générés en une complétion");
+            return texts;
         } catch (Exception e) {
-            System.err.println("Erreur lors de la génération en chaîne : " + e.getMessage());
-            BatchStatusController.failJob(jobId, e.getMessage());
-            throw new RuntimeException("Batch generation failed", e);
+            System.err.println("⚠️ Génération groupée impossible, génération recette par recette: " + e.getMessage());
+            return List.of();
         }
+    }
 
-        return CompletableFuture.completedFuture(generatedRecipes);
+    private Recipe generateItem(BatchGenerationRequest request, RecipeRequest recipeRequest, int position, ParsedRecipe text) {
+        Recipe recipe = recipeService.generateRecipe(recipeRequest, text);
+
+        // Ajouter les tags spécifiques au batch
+        recipe.addTag("tag1", request.getBatchType(), "Type de batch");
+        recipe.addTag("tag2", "batch-" + request.getBatchId(), "ID du batch");
+        recipe.addTag("tag3", String.valueOf(position), "Position dans le batch");
+        return recipe;
     }
 
     /**
      * Génère un menu complet (entrée, plat, dessert)
      */
-    @Async
-    public CompletableFuture<List<Recipe>> generateCompleteMenu(String userName, String theme) {
+    public List<Recipe> generateCompleteMenu(String jobId, String userName, String theme) {
         List<RecipeRequest> menuRequests = new ArrayList<>();
 
         // Créer les requêtes pour un menu complet - CORRIGÉ
@@ -90,7 +159,8 @@ public class BatchRecipeGenerationService {
         batchRequest.setRecipeRequests(menuRequests);
         batchRequest.setBatchType("menu-" + theme.toLowerCase().replace(" ", "-"));
         batchRequest.setBatchId(System.currentTimeMillis());
-        batchRequest.setDelayBetweenRequests(30); // 30 secondes entre chaque recette
+        batchRequest.setJobId(jobId);
+        batchRequest.setSingleCompletion(true);
 
         return generateRecipeBatch(batchRequest);
     }
@@ -98,8 +168,7 @@ public class BatchRecipeGenerationService {
     /**
      * Génère des recettes par thème (ex: cuisine italienne)
      */
-    @Async
-    public CompletableFuture<List<Recipe>> generateThemeRecipes(String userName, String theme, int count) {
+    public List<Recipe> generateThemeRecipes(String jobId, String userName, String theme, int count) {
         List<RecipeRequest> themeRequests = new ArrayList<>();
 
         // Plats typiques selon le thème
@@ -113,7 +182,8 @@ public class BatchRecipeGenerationService {
         batchRequest.setRecipeRequests(themeRequests);
         batchRequest.setBatchType("theme-" + theme.toLowerCase().replace(" ", "-"));
         batchRequest.setBatchId(System.currentTimeMillis());
-        batchRequest.setDelayBetweenRequests(25);
+        batchRequest.setJobId(jobId);
+        batchRequest.setSingleCompletion(true);
 
         return generateRecipeBatch(batchRequest);
     }
@@ -121,8 +191,7 @@ public class BatchRecipeGenerationService {
     /**
      * Génère des recettes personnalisées
      */
-    @Async
-    public CompletableFuture<List<Recipe>> generateCustomRecipes(String userName, List<String> dishes) {
+    public List<Recipe> generateCustomRecipes(String jobId, String userName, List<String> dishes) {
         List<RecipeRequest> customRequests = new ArrayList<>();
 
         for (String dish : dishes) {
@@ -135,7 +204,7 @@ public class BatchRecipeGenerationService {
         batchRequest.setRecipeRequests(customRequests);
         batchRequest.setBatchType("custom");
         batchRequest.setBatchId(System.currentTimeMillis());
-        batchRequest.setDelayBetweenRequests(20);
+        batchRequest.setJobId(jobId);
 
         return generateRecipeBatch(batchRequest);
     }
@@ -178,8 +247,8 @@ public class BatchRecipeGenerationService {
         private List<RecipeRequest> recipeRequests;
         private String batchType;
         private Long batchId;
-        private int delayBetweenRequests = 20; // secondes
         private String jobId; // Nouvel attribut
+        private boolean singleCompletion; // Textes de toutes les recettes en une seule complétion
 
         // Getters et setters
         public List<RecipeRequest> getRecipeRequests() { return recipeRequests; }
@@ -191,9 +260,10 @@ public class BatchRecipeGenerationService {
         public Long getBatchId() { return batchId; }
         public void setBatchId(Long batchId) { this.batchId = batchId; }
 
-        public int getDelayBetweenRequests() { return delayBetweenRequests; }
-        public void setDelayBetweenRequests(int delayBetweenRequests) { this.delayBetweenRequests = delayBetweenRequests; }
         public String getJobId() { return jobId; }
         public void setJobId(String jobId) { this.jobId = jobId; }
+
+        public boolean isSingleCompletion() { return singleCompletion; }
+        public void setSingleCompletion(boolean singleCompletion) { this.singleCompletion = singleCompletion; }
     }
 }
\ No newline at end of file
@@ -0,0 +1,122 @@
+package com.ynov.recaipes.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Disjoncteur fermé / ouvert / semi-ouvert.
+ * Après {@code failureThreshold} échecs consécutifs, le circuit s'ouvre : les appels sont refusés sans attendre
+ * le délai réseau. Passé {@code openDuration}, un seul appel d'essai est autorisé (semi-ouvert) ;
+ * son résultat referme ou rouvre le circuit.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openDurationNanos;
+    private final LongSupplier clock;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtNanos;
+    private boolean trialInFlight;
+    private long trialStartedAtNanos;
+
+    private final LongAdder successes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder opened = new LongAdder();
+
+    public CircuitBreaker(String name, int failureThreshold, long openDurationMs) {
+        this(name, failureThreshold, openDurationMs, System::nanoTime);
+    }
+
+    CircuitBreaker(String name, int failureThreshold, long openDurationMs, LongSupplier clock) {
+        this.name = name;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openDurationNanos = TimeUnit.MILLISECONDS.toNanos(openDurationMs);
+        this.clock = clock;
+    }
+
+    /**
+     * Réserve le droit d'appeler le service. En semi-ouvert, un seul appelant obtient l'essai ;
+     * il doit ensuite signaler le résultat par {@link #onSuccess()} ou {@link #onFailure()}.
+     */
+    public synchronized boolean tryAcquire() {
+        refreshState();
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.HALF_OPEN && !trialInFlight) {
+            trialInFlight = true;
+            trialStartedAtNanos = clock.getAsLong();
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    /**
+     * Indique sans réserver d'essai si un appel a une chance d'être autorisé
+     */
+    public synchronized boolean isCallPermitted() {
+        refreshState();
+        return state == State.CLOSED || (state == State.HALF_OPEN && !trialInFlight);
+    }
+
+    public synchronized void onSuccess() {
+        successes.increment();
+        consecutiveFailures = 0;
+        trialInFlight = false;
+        if (state != State.CLOSED) {
+            state = State.CLOSED;
+            System.out.println("✅ Circuit " + name + " refermé");
+        }
+    }
+
+    public synchronized void onFailure() {
+        failures.increment();
+        consecutiveFailures++;
+        trialInFlight = false;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            state = State.OPEN;
+            openedAtNanos = clock.getAsLong();
+            opened.increment();
+            System.err.println("⛔ Circuit " + name + " ouvert après " + consecutiveFailures + " échec(s), nouvel essai dans "
+                    + TimeUnit.NANOSECONDS.toSeconds(openDurationNanos) + " s");
+        }
+    }
+
+    public synchronized State getState() {
+        refreshState();
+        return state;
+    }
+
+    private void refreshState() {
+        long now = clock.getAsLong();
+        if (state == State.OPEN && now - openedAtNanos >= openDurationNanos) {
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        } else if (trialInFlight && now - trialStartedAtNanos >= openDurationNanos) {
+            // essai dont le résultat n'a jamais été signalé : on en autorise un autre
+            trialInFlight = false;
+        }
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        refreshState();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("state", state.name());
+        stats.put("consecutiveFailures", consecutiveFailures);
+        stats.put("successes", successes.sum());
+        stats.put("failures", failures.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("opened", opened.sum());
+        return stats;
+    }
+}
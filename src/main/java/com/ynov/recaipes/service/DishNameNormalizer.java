@@ -0,0 +1,48 @@
+package com.ynov.recaipes.service;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Normalisation des noms de plats pour le cache de recettes :
+ * casse, accents, ponctuation, espaces et articles ("Pizza  Margherita" == "la pizza margherita").
+ * Les prépositions qui changent le plat ("sans", "avec", "pour", "sur", "en"...) sont conservées :
+ * "pâtes sans beurre" et "pâtes avec beurre" ont des clés différentes.
+ */
+public final class DishNameNormalizer {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^a-z0-9]+");
+
+    // Articles et mots de remplissage uniquement
+    private static final Set<String> STOP_WORDS = Set.of(
+            // Français
+            "le", "la", "les", "l", "un", "une", "des", "de", "du", "d", "au", "aux", "a", "recette",
+            // Anglais
+            "the", "an", "of", "recipe"
+    );
+
+    private DishNameNormalizer() {
+    }
+
+    public static String normalize(String dishName) {
+        if (dishName == null) {
+            return "";
+        }
+        String withoutAccents = DIACRITICS.matcher(Normalizer.normalize(dishName, Normalizer.Form.NFD)).replaceAll("");
+        String[] words = NON_ALPHANUMERIC.split(withoutAccents.toLowerCase(Locale.ROOT));
+
+        StringBuilder key = new StringBuilder();
+        for (String word : words) {
+            if (!word.isEmpty() && !STOP_WORDS.contains(word)) {
+                if (key.length() > 0) {
+                    key.append(' ');
+                }
+                key.append(word);
+            }
+        }
+        return key.toString();
+    }
+}
@@ -1,14 +1,23 @@
 package com.ynov.recaipes.service;
 
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import jakarta.annotation.PostConstruct;
 import org.springframework.http.*;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 
 import java.io.File;
+import java.net.URI;
+import java.time.Instant;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -28,10 +37,45 @@ public class ExternalBucketProvider implements StorageProvider {
     @Value("${external.bucket.token:}")
     private String studentToken;
 
+    @Value("${external.bucket.health.enabled:true}")
+    private boolean healthProbeEnabled;
+
+    @Value("${external.bucket.delete.verify.enabled:false}")
+    private boolean verifyDeletes;
+
+    @Value("${external.bucket.delete.verify.delay-ms:1000}")
+    private long verifyDelayMs;
+
     private final RestTemplate restTemplate;
+    private final TaskScheduler taskScheduler;
+
+    // Ouvert après des échecs réseau/5xx consécutifs : les uploads passent alors directement au stockage local
+    private final CircuitBreaker circuitBreaker;
 
-    public ExternalBucketProvider(RestTemplate restTemplate) {
+    // Dernier résultat de la sonde de santé (null tant qu'aucune sonde n'a tourné)
+    private volatile Boolean lastProbeHealthy;
+    private volatile Instant lastProbeAt;
+
+    public ExternalBucketProvider(@Qualifier("bucketRestTemplate") RestTemplate restTemplate,
+                                  TaskScheduler taskScheduler,
+                                  @Value("${external.bucket.circuit.failure-threshold:3}") int failureThreshold,
+                                  @Value("${external.bucket.circuit.open-seconds:30}") long openSeconds) {
         this.restTemplate = restTemplate;
+        this.taskScheduler = taskScheduler;
+        this.circuitBreaker = new CircuitBreaker("bucket externe", failureThreshold, openSeconds * 1000);
+    }
+
+    @PostConstruct
+    public void logConfiguration() {
+        if (isConfigured()) {
+            System.out.println("External Bucket Provider configuré pour: " + bucketBaseUrl +
+                    " (Group ID: " + groupId + ")");
+            if (studentToken == null || studentToken.isEmpty()) {
+                System.out.println("⚠️  Warning: Pas de token configuré - Upload impossible");
+            }
+        } else {
+            System.out.println("External Bucket Provider non disponible - configuration manquante");
+        }
     }
 
     // ... (uploadFile and other methods remain the same)
@@ -42,6 +86,24 @@ public class ExternalBucketProvider implements StorageProvider {
 
     @Override
     public String uploadFile(File file, String contentType, Map<String, String> customTags) {
+        return upload(new FileSystemResource(file), file.getName(), file.length(), customTags);
+    }
+
+    /**
+     * Le contenu en mémoire est placé directement dans le corps multipart, sans fichier temporaire
+     */
+    @Override
+    public String uploadBytes(byte[] content, String fileName, String contentType, Map<String, String> customTags) {
+        ByteArrayResource resource = new ByteArrayResource(content) {
+            @Override
+            public String getFilename() {
+                return fileName;
+            }
+        };
+        return upload(resource, fileName, content.length, customTags);
+    }
+
+    private String upload(Resource resource, String fileName, long length, Map<String, String> customTags) {
         if (!isAvailable()) {
             throw new IllegalStateException("External Bucket Provider is not available");
         }
@@ -50,6 +112,10 @@ public class ExternalBucketProvider implements StorageProvider {
             throw new IllegalStateException("Student token required for upload");
         }
 
+        if (!circuitBreaker.tryAcquire()) {
+            throw new IllegalStateException("External bucket circuit is open");
+        }
+
         try {
             String uploadUrl = bucketBaseUrl + "/student/upload";
 
@@ -57,12 +123,12 @@ public class ExternalBucketProvider implements StorageProvider {
             headers.setBearerAuth(studentToken);
 
             MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
-            body.add("file", new FileSystemResource(file));
+            body.add("file", resource);
 
             String customExternalId = generateExternalIdNumeric();
             body.add("idExterne", customExternalId);
 
-            String recipeName = getRecipeName(customTags, file.getName());
+            String recipeName = getRecipeName(customTags, fileName);
 
             body.add("tag1", "recipe");
             body.add("tag2", recipeName);
@@ -74,11 +140,11 @@ public class ExternalBucketProvider implements StorageProvider {
 
             System.out.println("🚀 Upload vers bucket externe: " + uploadUrl);
             System.out.println("📦 Token: " + (studentToken != null ? "✅ Présent" : "❌ Manquant"));
-            System.out.println("📎 Fichier: " + file.getName() + " (" + file.length() + " bytes)");
+            System.out.println("📎 Fichier: " + fileName + " (" + length + " bytes)");
             System.out.println("🏷️ Tags: tag1=recipe, tag2=" + recipeName + ", tag3=" + getCurrentDateWithTime());
 
-            ResponseEntity<Map> response = restTemplate.postForEntity(
-                    uploadUrl, requestEntity, Map.class);
+            ResponseEntity<Map> response = exchange(
+                    uploadUrl, HttpMethod.POST, requestEntity, Map.class);
 
             if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
                 Map<String, Object> responseBody = response.getBody();
@@ -106,6 +172,9 @@ public class ExternalBucketProvider implements StorageProvider {
      * Builds the URL with the group ID in the path and removes it from the body.
      */
     public Map<String, Object> searchFiles(String tag1, String tag2, String tag3) {
+        if (!circuitBreaker.tryAcquire()) {
+            return Map.of("error", "Search skipped: external bucket circuit is open");
+        }
         try {
             // --- FIX ---
             // The group ID is now part of the URL path, as per your instruction.
@@ -124,7 +193,7 @@ public class ExternalBucketProvider implements StorageProvider {
 
             System.out.println("Recherche publique dans bucket sur l'URL: " + searchUrl);
 
-            ResponseEntity<Map> response = restTemplate.exchange(
+            ResponseEntity<Map> response = exchange(
                     searchUrl, HttpMethod.GET, requestEntity, Map.class);
 
             if (response.getStatusCode().is2xxSuccessful()) {
@@ -205,23 +274,81 @@ public class ExternalBucketProvider implements StorageProvider {
         return bucketBaseUrl + "/public/file/" + fileName;
     }
     @Override
+    public int getPriority() {
+        return 2;
+    }
+
+    /**
+     * Configuré et circuit non ouvert. Appelé à chaque sélection de provider : aucun appel réseau ni log ici.
+     */
+    @Override
     public boolean isAvailable() {
-        boolean available = bucketEnabled &&
+        return isConfigured() && circuitBreaker.isCallPermitted();
+    }
+
+    private boolean isConfigured() {
+        return bucketEnabled &&
                 bucketBaseUrl != null && !bucketBaseUrl.isEmpty() &&
                 groupId != null;
+    }
 
-        if (available) {
-            System.out.println("External Bucket Provider configuré pour: " + bucketBaseUrl +
-                    " (Group ID: " + groupId + ")");
-            if (studentToken == null || studentToken.isEmpty()) {
-                System.out.println("⚠️  Warning: Pas de token configuré - Upload impossible");
-            }
-        } else {
-            System.out.println("External Bucket Provider non disponible - configuration manquante");
+    /**
+     * Appel HTTP vers le bucket dont le résultat alimente le disjoncteur.
+     * Une erreur 4xx prouve que le bucket répond : seuls les erreurs réseau et les 5xx comptent comme échecs.
+     */
+    private <T> ResponseEntity<T> exchange(String url, HttpMethod method, HttpEntity<?> requestEntity, Class<T> responseType) {
+        try {
+            ResponseEntity<T> response = restTemplate.exchange(url, method, requestEntity, responseType);
+            circuitBreaker.onSuccess();
+            return response;
+        } catch (HttpClientErrorException e) {
+            circuitBreaker.onSuccess();
+            throw e;
+        } catch (RuntimeException e) {
+            circuitBreaker.onFailure();
+            throw e;
         }
+    }
 
-        return available;
+    /**
+     * Sonde de santé périodique (HEAD sur la racine du bucket) : met à jour l'état affiché
+     * et sert d'appel d'essai pour refermer le circuit, sans faire attendre les uploads.
+     */
+    @Scheduled(initialDelayString = "${external.bucket.health.initial-delay-ms:10000}",
+            fixedDelayString = "${external.bucket.health.interval-ms:30000}")
+    public void probeHealth() {
+        if (!healthProbeEnabled || !isConfigured() || !circuitBreaker.tryAcquire()) {
+            return;
+        }
+        boolean healthy;
+        try {
+            exchange(bucketBaseUrl, HttpMethod.HEAD, HttpEntity.EMPTY, Void.class);
+            healthy = true;
+        } catch (HttpClientErrorException e) {
+            healthy = true;
+        } catch (Exception e) {
+            healthy = false;
+        }
+        if (!Boolean.valueOf(healthy).equals(lastProbeHealthy)) {
+            System.out.println((healthy ? "🟢" : "🔴") + " Bucket externe " + (healthy ? "joignable" : "injoignable") + ": " + bucketBaseUrl);
+        }
+        lastProbeHealthy = healthy;
+        lastProbeAt = Instant.now();
     }
+
+    @Override
+    public boolean canHandle(String fileUrl) {
+        if (fileUrl == null || bucketBaseUrl == null || bucketBaseUrl.isEmpty()) {
+            return false;
+        }
+        String host = URI.create(bucketBaseUrl).getHost();
+        return (host != null && fileUrl.contains(host)) || fileUrl.contains("/public/file/");
+    }
+
+    /**
+     * Supprime l'objet en un seul appel DELETE. L'ID serveur est attendu après "||" (fourni par StorageService
+     * depuis la table stored_object) ; à défaut, on utilise l'ID déduit de l'URL.
+     */
     @Override
     public boolean deleteFile(String fileUrl) {
         if (studentToken == null || studentToken.isEmpty()) {
@@ -229,94 +356,69 @@ public class ExternalBucketProvider implements StorageProvider {
             return false;
         }
 
-        try {
-            System.out.println("🚀 Tentative de suppression pour: " + fileUrl);
-            String idFromUrl = null;
-            String originalFileUrl = fileUrl;
-            if (fileUrl.contains("||")) {
-                String[] parts = fileUrl.split("\\|\\|");
-                idFromUrl = parts.length > 1 ? parts[1] : null;
-                fileUrl = parts[0];
-            }
-            if (idFromUrl != null) {
-                System.out.println("🔑 Utilisation de l'ID stocké: " + idFromUrl);
-                try {
-                    String deleteUrl = bucketBaseUrl + "/student/upload/" + idFromUrl;
-                    HttpHeaders headers = new HttpHeaders();
-                    headers.setBearerAuth(studentToken);
-                    HttpEntity<Void> requestEntity = new HttpEntity<>(headers);
-                    ResponseEntity<Map> response = restTemplate.exchange(
-                            deleteUrl, HttpMethod.DELETE, requestEntity, Map.class);
-                    if (response.getStatusCode().is2xxSuccessful()) {
-                        System.out.println("✅ Suppression réussie avec ID: " + idFromUrl);
-                        try {
-                            Thread.sleep(1000);
-                            HttpHeaders verifyHeaders = new HttpHeaders();
-                            HttpEntity<Void> verifyRequest = new HttpEntity<>(verifyHeaders);
-                            restTemplate.exchange(fileUrl, HttpMethod.HEAD, verifyRequest, byte[].class);
-                            System.err.println("⚠️ ATTENTION: Le fichier semble toujours accessible!");
-                        } catch (Exception e) {
-                            System.out.println("✅ Vérification: Le fichier n'est plus accessible");
-                        }
-                        return true;
-                    }
-                } catch (Exception e) {
-                    if (e.getMessage() != null && e.getMessage().contains("Aucun élément avec l'ID")) {
-                        System.out.println("✅ Le fichier a déjà été supprimé (ID: " + idFromUrl + ")");
-                        return true;
-                    }
-                    System.out.println("⚠️ Échec avec ID " + idFromUrl + ": " + e.getMessage());
-                }
-            }
-            List<String> idsToTry = new ArrayList<>();
-            String extractedId = extractFileIdFromUrl(fileUrl);
-            if (extractedId != null) {
-                idsToTry.add(extractedId);
-                System.out.println("📄 ID extrait du nom de fichier: " + extractedId);
-            }
-            for (int i = 0; i < 5; i++) {
-                String numericId = String.valueOf(i + 1);
-                if (!idsToTry.contains(numericId)) {
-                    idsToTry.add(numericId);
-                }
-            }
-            System.out.println("🔄 Tentative avec " + idsToTry.size() + " IDs possibles: " + idsToTry);
-            for (String id : idsToTry) {
-                try {
-                    String deleteUrl = bucketBaseUrl + "/student/upload/" + id;
-                    HttpHeaders headers = new HttpHeaders();
-                    headers.setBearerAuth(studentToken);
-                    HttpEntity<Void> requestEntity = new HttpEntity<>(headers);
-                    System.out.println("🗑️ Tentative de suppression avec ID: " + id);
-                    ResponseEntity<Map> response = restTemplate.exchange(
-                            deleteUrl, HttpMethod.DELETE, requestEntity, Map.class);
-                    if (response.getStatusCode().is2xxSuccessful()) {
-                        System.out.println("✅ Suppression réussie avec ID: " + id);
-                        return true;
-                    }
-                } catch (Exception e) {
-                    System.out.println("⚠️ Échec avec ID " + id + ": " + e.getMessage());
-                }
+        String id = null;
+        if (fileUrl.contains("||")) {
+            String[] parts = fileUrl.split("\\|\\|");
+            id = parts.length > 1 && !parts[1].isEmpty() ? parts[1] : null;
+            fileUrl = parts[0];
+        }
+        if (id != null) {
+            System.out.println("🔑 Utilisation de l'ID stocké: " + id);
+        } else {
+            id = extractFileIdFromUrl(fileUrl);
+            if (id == null) {
+                System.err.println("❌ Aucun ID serveur connu pour: " + fileUrl);
+                return false;
             }
-            try {
-                HttpHeaders verifyHeaders = new HttpHeaders();
-                HttpEntity<Void> verifyRequest = new HttpEntity<>(verifyHeaders);
-                ResponseEntity<byte[]> verifyResponse = restTemplate.exchange(
-                        fileUrl, HttpMethod.HEAD, verifyRequest, byte[].class);
-                if (verifyResponse.getStatusCode().is2xxSuccessful()) {
-                    System.err.println("⚠️ ATTENTION: Le fichier est toujours accessible!");
-                    return false;
-                }
-            } catch (Exception e) {
-                System.out.println("✅ Le fichier n'est plus accessible");
+        }
+
+        // Après la résolution de l'ID : un retour anticipé ne doit pas consommer l'essai du circuit semi-ouvert
+        if (!circuitBreaker.tryAcquire()) {
+            System.err.println("⛔ Suppression ignorée, circuit du bucket externe ouvert: " + fileUrl);
+            return false;
+        }
+
+        try {
+            String deleteUrl = bucketBaseUrl + "/student/upload/" + id;
+            HttpHeaders headers = new HttpHeaders();
+            headers.setBearerAuth(studentToken);
+            HttpEntity<Void> requestEntity = new HttpEntity<>(headers);
+            ResponseEntity<Map> response = exchange(
+                    deleteUrl, HttpMethod.DELETE, requestEntity, Map.class);
+            if (response.getStatusCode().is2xxSuccessful()) {
+                System.out.println("✅ Suppression réussie avec ID: " + id);
+                scheduleDeleteVerification(fileUrl);
                 return true;
             }
+            System.err.println("❌ Suppression refusée (ID " + id + "): " + response.getStatusCode());
             return false;
         } catch (Exception e) {
-            System.err.println("❌ Erreur générale lors de la suppression: " + e.getMessage());
+            if (e.getMessage() != null && e.getMessage().contains("Aucun élément avec l'ID")) {
+                System.out.println("✅ Le fichier a déjà été supprimé (ID: " + id + ")");
+                return true;
+            }
+            System.err.println("❌ Erreur lors de la suppression (ID " + id + "): " + e.getMessage());
             return false;
         }
     }
+
+    /**
+     * Vérification facultative, en différé, que le fichier n'est plus servi (external.bucket.delete.verify.*)
+     */
+    private void scheduleDeleteVerification(String fileUrl) {
+        if (!verifyDeletes) {
+            return;
+        }
+        taskScheduler.schedule(() -> {
+            try {
+                exchange(fileUrl, HttpMethod.HEAD, HttpEntity.EMPTY, Void.class);
+                System.err.println("⚠️ ATTENTION: Le fichier semble toujours accessible: " + fileUrl);
+            } catch (Exception e) {
+                System.out.println("✅ Vérification: Le fichier n'est plus accessible: " + fileUrl);
+            }
+        }, Instant.now().plusMillis(verifyDelayMs));
+    }
+
     private String getCurrentDateWithTime() {
         java.time.format.DateTimeFormatter formatter = java.time.format.DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
         return java.time.LocalDateTime.now().format(formatter);
@@ -370,7 +472,7 @@ public class ExternalBucketProvider implements StorageProvider {
             headers.setBearerAuth(studentToken);
             Map<String, Object> requestBody = new HashMap<>();
             HttpEntity<Map<String, Object>> requestEntity = new HttpEntity<>(requestBody, headers);
-            ResponseEntity<Map> response = restTemplate.exchange(
+            ResponseEntity<Map> response = exchange(
                     searchUrl, HttpMethod.GET, requestEntity, Map.class);
             return response.getStatusCode().is2xxSuccessful() ?
                     response.getBody() :
@@ -379,14 +481,19 @@ public class ExternalBucketProvider implements StorageProvider {
             return Map.of("error", "Private search failed: " + e.getMessage());
         }
     }
+    /**
+     * État de connectivité mis en cache par la sonde de santé, sans appel réseau
+     */
     public boolean testConnectivity() {
-        try {
-            Map<String, Object> result = searchFiles(null, null, null);
-            return !result.containsKey("error");
-        } catch (Exception e) {
-            System.err.println("Connectivity test failed: " + e.getMessage());
-            return false;
-        }
+        return !Boolean.FALSE.equals(lastProbeHealthy) && circuitBreaker.getState() != CircuitBreaker.State.OPEN;
+    }
+
+    public Map<String, Object> getHealth() {
+        Map<String, Object> health = new LinkedHashMap<>();
+        health.put("reachable", lastProbeHealthy);
+        health.put("lastProbeAt", lastProbeAt != null ? lastProbeAt.toString() : null);
+        health.put("circuit", circuitBreaker.getStats());
+        return health;
     }
     public Map<String, Object> getProviderInfo() {
         Map<String, Object> info = new HashMap<>();
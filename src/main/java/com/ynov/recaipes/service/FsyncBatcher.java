@@ -0,0 +1,163 @@
+package com.ynov.recaipes.service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * fsync groupés (group commit) : les écritures concurrentes attendent le même passage d'un thread unique,
+ * qui synchronise une seule fois chaque fichier et chaque dossier du lot.
+ * Un lot part dès {@code maxBatch} demandes ou après {@code maxDelayMs} d'attente.
+ */
+class FsyncBatcher implements AutoCloseable {
+
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    private final int maxBatch;
+    private final long maxDelayNanos;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder syncs = new LongAdder();
+
+    FsyncBatcher(int maxBatch, long maxDelayMs) {
+        this.maxBatch = Math.max(1, maxBatch);
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMs);
+        this.thread = new Thread(this::run, "local-fsync");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Bloque jusqu'à ce que le fichier (ou le dossier) soit écrit sur disque
+     */
+    void sync(Path path) throws IOException {
+        if (!running) {
+            force(path);
+            return;
+        }
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        requests.increment();
+        queue.add(new Request(path, done));
+        if (!thread.isAlive()) {
+            // arrêté entre-temps : personne d'autre ne videra la file
+            drainInline();
+        }
+        try {
+            done.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for fsync of " + path);
+        }
+    }
+
+    private void run() {
+        List<Request> batch = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                Request first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < maxBatch) {
+                    long remaining = deadline - System.nanoTime();
+                    Request next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                running = false;
+            }
+            flush(batch);
+            batch.clear();
+        }
+    }
+
+    private void flush(List<Request> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        Set<Path> paths = new LinkedHashSet<>();
+        batch.forEach(request -> paths.add(request.path()));
+        Map<Path, IOException> failures = new HashMap<>();
+        for (Path path : paths) {
+            try {
+                force(path);
+            } catch (IOException e) {
+                failures.put(path, e);
+            }
+        }
+        for (Request request : batch) {
+            IOException failure = failures.get(request.path());
+            if (failure != null) {
+                request.done().completeExceptionally(failure);
+            } else {
+                request.done().complete(null);
+            }
+        }
+        batches.increment();
+        syncs.add(paths.size());
+    }
+
+    static void force(Path path) throws IOException {
+        boolean directory = Files.isDirectory(path);
+        try (FileChannel channel = FileChannel.open(path, directory ? StandardOpenOption.READ : StandardOpenOption.WRITE)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // certains systèmes (Windows) ne permettent pas de synchroniser un dossier
+            if (!directory) {
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        drainInline();
+    }
+
+    private void drainInline() {
+        List<Request> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        flush(remaining);
+    }
+
+    Map<String, Object> getStats() {
+        return Map.of(
+                "requests", requests.sum(),
+                "batches", batches.sum(),
+                "syncs", syncs.sum()
+        );
+    }
+
+    private record Request(Path path, CompletableFuture<Void> done) {
+    }
+}
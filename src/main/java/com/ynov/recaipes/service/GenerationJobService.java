@@ -0,0 +1,65 @@
+package com.ynov.recaipes.service;
+
+import com.ynov.recaipes.controller.BatchStatusController;
+import com.ynov.recaipes.dto.RecipeRequest;
+import com.ynov.recaipes.model.Recipe;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+
+/**
+ * Exécution asynchrone des générations (recette unique ou batch) sur un pool borné dédié.
+ * Le suivi passe par le registre de tâches de {@link BatchStatusController}.
+ */
+@Service
+@RequiredArgsConstructor
+public class GenerationJobService {
+
+    private final RecipeService recipeService;
+    private final Executor recipeJobExecutor;
+
+    /**
+     * Soumet la génération d'une recette et retourne immédiatement l'identifiant de la tâche
+     *
+     * @throws RejectedExecutionException si la file d'attente du pool est pleine
+     */
+    public String submitRecipe(RecipeRequest request) {
+        return submit("recipe", jobId -> {
+            BatchStatusController.updateJobProgress(jobId, 0, "Génération de " + request.getDishName());
+            return List.of(recipeService.generateRecipe(request));
+        });
+    }
+
+    /**
+     * Soumet un travail de génération : {@code work} reçoit l'identifiant de la tâche pour publier sa progression
+     *
+     * @throws RejectedExecutionException si la file d'attente du pool est pleine
+     */
+    public String submit(String type, Function<String, List<Recipe>> work) {
+        String jobId = BatchStatusController.createNewJob(type);
+        try {
+            recipeJobExecutor.execute(() -> run(jobId, work));
+        } catch (RejectedExecutionException e) {
+            BatchStatusController.failJob(jobId, "File de génération pleine");
+            throw e;
+        }
+        return jobId;
+    }
+
+    private void run(String jobId, Function<String, List<Recipe>> work) {
+        try {
+            List<Recipe> recipes = work.apply(jobId);
+            for (Recipe recipe : recipes) {
+                BatchStatusController.addJobResult(jobId, recipe.getId());
+            }
+            BatchStatusController.completeJob(jobId, recipes.size() + " recette(s) générée(s)");
+        } catch (Exception e) {
+            System.err.println("❌ Tâche " + jobId + " en erreur: " + e.getMessage());
+            BatchStatusController.failJob(jobId, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.ynov.recaipes.service;
+
+/**
+ * Réponse de l'IA inexploitable : refus, JSON hors schéma, ingrédients ou instructions manquants.
+ * Les autres erreurs (quota, interruption, réseau) ne sont pas de ce type.
+ */
+public class IncompleteRecipeException extends IllegalStateException {
+
+    public IncompleteRecipeException(String message) {
+        super(message);
+    }
+
+    public IncompleteRecipeException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -1,23 +1,73 @@
 package com.ynov.recaipes.service;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Stockage local (secours). En mode adressé par contenu ({@code storage.local.content-addressed}), chaque objet
+ * est nommé par le SHA-256 de son contenu et rangé dans {@code objects/ab/cd/} (deux niveaux de 256 dossiers) :
+ * un contenu déjà présent n'est pas réécrit. Quand la source est sur le même disque, l'objet est un lien physique
+ * vers elle (aucune écriture) ; sinon il est copié dans un fichier temporaire synchronisé puis renommé atomiquement.
+ * Les fsync des écritures concurrentes sont regroupés ({@link FsyncBatcher}).
+ */
 @Component
 public class LocalStorageProvider implements StorageProvider {
 
+    private static final String OBJECTS_DIR = "objects";
+
     @Value("${pdf.storage.local.path:./pdfs}")
     private String localStoragePath;
 
+    @Value("${storage.local.content-addressed:true}")
+    private boolean contentAddressed;
+
+    @Value("${storage.local.fsync.enabled:true}")
+    private boolean fsyncEnabled;
+
+    @Value("${storage.local.fsync.max-batch:64}")
+    private int fsyncMaxBatch;
+
+    @Value("${storage.local.fsync.max-delay-ms:2}")
+    private long fsyncMaxDelayMs;
+
+    private FsyncBatcher fsyncBatcher;
+
+    private final LongAdder linked = new LongAdder();
+    private final LongAdder copied = new LongAdder();
+    private final LongAdder deduplicated = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        if (contentAddressed && fsyncEnabled) {
+            fsyncBatcher = new FsyncBatcher(fsyncMaxBatch, fsyncMaxDelayMs);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (fsyncBatcher != null) {
+            fsyncBatcher.close();
+        }
+    }
+
     @Override
     public String uploadFile(File file, String contentType) {
         return uploadFile(file, contentType, null);
@@ -25,6 +75,13 @@ public class LocalStorageProvider implements StorageProvider {
 
     @Override
     public String uploadFile(File file, String contentType, Map<String, String> customTags) {
+        if (contentAddressed) {
+            try {
+                return storeContentAddressed(file.toPath());
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to store file locally", e);
+            }
+        }
         try {
             Path destinationDir = Paths.get(localStoragePath);
             if (!Files.exists(destinationDir)) {
@@ -43,16 +100,145 @@ public class LocalStorageProvider implements StorageProvider {
         }
     }
 
+    @Override
+    public String uploadBytes(byte[] content, String fileName, String contentType, Map<String, String> customTags) {
+        try {
+            if (contentAddressed) {
+                String hash = HexFormat.of().formatHex(sha256Digest().digest(content));
+                Path target = objectPath(hash, extension(fileName));
+                if (!isStored(target)) {
+                    writeAtomically(target, temp -> Files.write(temp, content));
+                }
+                return "file://" + target.toAbsolutePath() + "||" + hash;
+            }
+            Path destinationDir = Paths.get(localStoragePath);
+            Files.createDirectories(destinationDir);
+            Path destinationFile = destinationDir.resolve(UUID.randomUUID() + "-" + fileName);
+            Files.write(destinationFile, content);
+            return "file://" + destinationFile.toAbsolutePath() + "||local";
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to store file locally", e);
+        }
+    }
+
+    private String storeContentAddressed(Path source) throws IOException {
+        String hash = sha256(source);
+        Path target = objectPath(hash, extension(source.getFileName().toString()));
+        if (!isStored(target) && !link(source, target)) {
+            writeAtomically(target, temp -> Files.copy(source, temp));
+        }
+        return "file://" + target.toAbsolutePath() + "||" + hash;
+    }
+
+    private boolean isStored(Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        if (Files.exists(target)) {
+            deduplicated.increment();
+            System.out.println("♻️ Contenu déjà stocké localement: " + target);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Lien physique vers la source : l'objet ne coûte aucune écriture de données
+     *
+     * @return false si le lien est impossible (autre système de fichiers, non supporté)
+     */
+    private boolean link(Path source, Path target) throws IOException {
+        try {
+            Files.createLink(target, source);
+        } catch (FileAlreadyExistsException e) {
+            deduplicated.increment();
+            return true;
+        } catch (UnsupportedOperationException | IOException e) {
+            return false;
+        }
+        sync(target.getParent());
+        linked.increment();
+        return true;
+    }
+
+    private void writeAtomically(Path target, TempWriter writer) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            writer.write(temp);
+            sync(temp);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        sync(target.getParent());
+        copied.increment();
+    }
+
+    private void sync(Path path) throws IOException {
+        if (fsyncBatcher != null) {
+            fsyncBatcher.sync(path);
+        }
+    }
+
+    Path objectPath(String hash, String extension) {
+        return Paths.get(localStoragePath, OBJECTS_DIR, hash.substring(0, 2), hash.substring(2, 4), hash + extension);
+    }
+
+    private static String extension(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return dot > 0 ? fileName.substring(dot) : "";
+    }
+
+    static String sha256(Path file) throws IOException {
+        MessageDigest digest = sha256Digest();
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest sha256Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("contentAddressed", contentAddressed);
+        stats.put("linked", linked.sum());
+        stats.put("copied", copied.sum());
+        stats.put("deduplicated", deduplicated.sum());
+        if (fsyncBatcher != null) {
+            stats.put("fsync", fsyncBatcher.getStats());
+        }
+        return stats;
+    }
+
     @Override
     public String getFileUrl(String fileName) {
         return "file://" + Paths.get(localStoragePath).resolve(fileName).toAbsolutePath();
     }
 
+    @Override
+    public int getPriority() {
+        return 10; // Fallback
+    }
+
     @Override
     public boolean isAvailable() {
         return true; // Toujours disponible
     }
 
+    @Override
+    public boolean canHandle(String fileUrl) {
+        return fileUrl != null && fileUrl.startsWith("file://");
+    }
+
     @Override
     public boolean deleteFile(String fileUrl) {
         try {
@@ -64,14 +250,13 @@ public class LocalStorageProvider implements StorageProvider {
                 }
                 Path path = Paths.get(filePath);
 
-                if (Files.exists(path)) {
-                    Files.delete(path);
+                if (Files.deleteIfExists(path)) {
                     System.out.println("✅ Fichier local supprimé: " + filePath);
-                    return true;
                 } else {
-                    System.err.println("⚠️ Fichier local introuvable: " + filePath);
-                    return false;
+                    // Déjà absent (balayage des orphelins, objet partagé déjà supprimé) : rien à faire, pas un échec
+                    System.out.println("✅ Fichier local déjà supprimé: " + filePath);
                 }
+                return true;
             } else {
                 System.err.println("❌ URL de fichier locale invalide: " + fileUrl);
                 return false;
@@ -81,4 +266,9 @@ public class LocalStorageProvider implements StorageProvider {
             return false;
         }
     }
-}
\ No newline at end of file
+
+    @FunctionalInterface
+    private interface TempWriter {
+        void write(Path temp) throws IOException;
+    }
+}
@@ -0,0 +1,229 @@
+package com.ynov.recaipes.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limiteur de débit partagé devant l'API OpenAI (trafic interactif et batchs).
+ * Deux seaux à jetons par famille d'API : requêtes/minute et tokens/minute.
+ * Les en-têtes x-ratelimit-* des réponses recalent les seaux sur le quota réel,
+ * et un 429 (retry-after) suspend tous les appels de la famille.
+ */
+@Component
+public class OpenAIRateLimiter {
+
+    public enum Api { CHAT, IMAGES }
+
+    private final Limits chat;
+    private final Limits images;
+    private final long maxWaitNanos;
+
+    public OpenAIRateLimiter(
+            @Value("${openai.rate-limit.chat.requests-per-minute:500}") long chatRpm,
+            @Value("${openai.rate-limit.chat.tokens-per-minute:10000}") long chatTpm,
+            @Value("${openai.rate-limit.images.requests-per-minute:50}") long imagesRpm,
+            @Value("${openai.rate-limit.max-wait-seconds:120}") long maxWaitSeconds) {
+        this.chat = new Limits(new TokenBucket(chatRpm), new TokenBucket(chatTpm));
+        this.images = new Limits(new TokenBucket(imagesRpm), null);
+        this.maxWaitNanos = TimeUnit.SECONDS.toNanos(maxWaitSeconds);
+    }
+
+    /**
+     * Attend que le quota permette l'appel (une requête et {@code estimatedTokens} tokens)
+     *
+     * @throws IllegalStateException si l'attente dépasserait {@code openai.rate-limit.max-wait-seconds}
+     */
+    public void acquire(Api api, long estimatedTokens) {
+        Limits limits = limits(api);
+        long now = System.nanoTime();
+        long wait = Math.max(0, limits.pausedUntilNanos.get() - now);
+        wait = Math.max(wait, limits.requests.reserve(1, now));
+        if (limits.tokens != null) {
+            wait = Math.max(wait, limits.tokens.reserve(estimatedTokens, now));
+        }
+
+        if (wait > maxWaitNanos) {
+            limits.requests.refund(1);
+            if (limits.tokens != null) {
+                limits.tokens.refund(estimatedTokens);
+            }
+            limits.rejected.increment();
+            throw new IllegalStateException("OpenAI rate limit: quota exhausted for the next "
+                    + TimeUnit.NANOSECONDS.toSeconds(wait) + "s");
+        }
+
+        limits.acquired.increment();
+        if (wait > 0) {
+            limits.waited.increment();
+            limits.totalWaitNanos.add(wait);
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for OpenAI quota", e);
+            }
+        }
+    }
+
+    /**
+     * Recale les seaux sur les en-têtes de quota renvoyés par OpenAI
+     */
+    public void onResponse(Api api, int statusCode, HttpHeaders headers) {
+        Limits limits = limits(api);
+        limits.requests.reconcile(
+                parseLong(headers.getFirst("x-ratelimit-limit-requests")),
+                parseLong(headers.getFirst("x-ratelimit-remaining-requests")));
+        if (limits.tokens != null) {
+            limits.tokens.reconcile(
+                    parseLong(headers.getFirst("x-ratelimit-limit-tokens")),
+                    parseLong(headers.getFirst("x-ratelimit-remaining-tokens")));
+        }
+
+        if (statusCode == 429) {
+            limits.throttled.increment();
+            long pauseNanos = parseRetryAfter(headers);
+            long until = System.nanoTime() + pauseNanos;
+            limits.pausedUntilNanos.accumulateAndGet(until, Math::max);
+            System.err.println("⏳ OpenAI 429 (" + api + ") : pause de " + TimeUnit.NANOSECONDS.toMillis(pauseNanos) + " ms");
+        }
+    }
+
+    private Limits limits(Api api) {
+        return api == Api.CHAT ? chat : images;
+    }
+
+    private static long parseRetryAfter(HttpHeaders headers) {
+        Long retryAfterMs = parseLong(headers.getFirst("retry-after-ms"));
+        if (retryAfterMs != null) {
+            return TimeUnit.MILLISECONDS.toNanos(retryAfterMs);
+        }
+        String retryAfter = headers.getFirst(HttpHeaders.RETRY_AFTER);
+        if (retryAfter != null) {
+            try {
+                return (long) (Double.parseDouble(retryAfter.trim()) * 1_000_000_000L);
+            } catch (NumberFormatException ignored) {
+                // format date HTTP : non utilisé par OpenAI, on retombe sur la valeur par défaut
+            }
+        }
+        return TimeUnit.SECONDS.toNanos(1);
+    }
+
+    private static Long parseLong(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("chat", chat.toMap());
+        stats.put("images", images.toMap());
+        return stats;
+    }
+
+    private static final class Limits {
+        private final TokenBucket requests;
+        private final TokenBucket tokens;
+        private final AtomicLong pausedUntilNanos = new AtomicLong(System.nanoTime());
+        private final LongAdder acquired = new LongAdder();
+        private final LongAdder waited = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder throttled = new LongAdder();
+        private final LongAdder totalWaitNanos = new LongAdder();
+
+        private Limits(TokenBucket requests, TokenBucket tokens) {
+            this.requests = requests;
+            this.tokens = tokens;
+        }
+
+        private Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("requestsPerMinute", requests.getCapacity());
+            map.put("availableRequests", requests.getAvailable());
+            if (tokens != null) {
+                map.put("tokensPerMinute", tokens.getCapacity());
+                map.put("availableTokens", tokens.getAvailable());
+            }
+            map.put("acquired", acquired.sum());
+            map.put("waited", waited.sum());
+            map.put("totalWaitMs", TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.sum()));
+            map.put("rejected", rejected.sum());
+            map.put("throttled429", throttled.sum());
+            return map;
+        }
+    }
+
+    /**
+     * Seau à jetons rempli en continu ({@code capacity} jetons par minute).
+     * Une réservation peut rendre le solde négatif : l'appelant attend alors le temps de le combler,
+     * ce qui sert les demandes dans leur ordre d'arrivée.
+     */
+    static final class TokenBucket {
+        private static final double NANOS_PER_MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+        private double capacity;
+        private double available;
+        private long lastRefillNanos;
+
+        TokenBucket(long perMinute) {
+            this.capacity = Math.max(1, perMinute);
+            this.available = capacity;
+            this.lastRefillNanos = System.nanoTime();
+        }
+
+        /**
+         * Réserve {@code amount} jetons et retourne l'attente nécessaire en nanosecondes
+         */
+        synchronized long reserve(double amount, long now) {
+            refill(now);
+            available -= Math.min(amount, capacity);
+            return available >= 0 ? 0 : (long) (-available * NANOS_PER_MINUTE / capacity);
+        }
+
+        synchronized void refund(double amount) {
+            available = Math.min(capacity, available + Math.min(amount, capacity));
+        }
+
+        /**
+         * Le serveur fait foi : on adopte sa limite et on ne compte jamais plus de jetons qu'il n'en reste
+         */
+        synchronized void reconcile(Long limit, Long remaining) {
+            refill(System.nanoTime());
+            if (limit != null && limit > 0) {
+                capacity = limit;
+            }
+            if (remaining != null && remaining < available) {
+                available = remaining;
+            }
+        }
+
+        private void refill(long now) {
+            double elapsed = now - lastRefillNanos;
+            if (elapsed > 0) {
+                available = Math.min(capacity, available + elapsed * capacity / NANOS_PER_MINUTE);
+                lastRefillNanos = now;
+            }
+        }
+
+        synchronized double getCapacity() {
+            return capacity;
+        }
+
+        synchronized long getAvailable() {
+            refill(System.nanoTime());
+            return (long) available;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.ynov.recaipes.service;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Politiques de relance par type d'appel OpenAI et requêtes doublées pour les images,
+ * avec un budget de tentatives supplémentaires commun.
+ */
+@Component
+public class OpenAIResilience {
+
+    private final RetryBudget budget;
+    private final RetryPolicy textRetry;
+    private final RetryPolicy imageRetry;
+    private final RequestHedger imageHedger;
+
+    public OpenAIResilience(
+            @Value("${openai.retry.budget.ratio:0.2}") double budgetRatio,
+            @Value("${openai.retry.budget.min-reserve:10}") int budgetMinReserve,
+            @Value("${openai.retry.text.max-attempts:3}") int textAttempts,
+            @Value("${openai.retry.text.base-delay-ms:1000}") long textBaseDelay,
+            @Value("${openai.retry.text.max-delay-ms:20000}") long textMaxDelay,
+            @Value("${openai.retry.image.max-attempts:3}") int imageAttempts,
+            @Value("${openai.retry.image.base-delay-ms:2000}") long imageBaseDelay,
+            @Value("${openai.retry.image.max-delay-ms:30000}") long imageMaxDelay,
+            @Value("${openai.hedge.image.enabled:false}") boolean imageHedgeEnabled,
+            @Value("${openai.hedge.image.min-delay-ms:15000}") long imageHedgeMinDelay,
+            @Qualifier("openAiHedgeExecutor") Executor openAiHedgeExecutor) {
+        this.budget = new RetryBudget(budgetRatio, budgetMinReserve);
+        this.textRetry = new RetryPolicy(textAttempts, textBaseDelay, textMaxDelay, budget);
+        this.imageRetry = new RetryPolicy(imageAttempts, imageBaseDelay, imageMaxDelay, budget);
+        this.imageHedger = new RequestHedger(imageHedgeEnabled, imageHedgeMinDelay, openAiHedgeExecutor, budget);
+    }
+
+    public RetryPolicy getTextRetry() {
+        return textRetry;
+    }
+
+    public RetryPolicy getImageRetry() {
+        return imageRetry;
+    }
+
+    public RequestHedger getImageHedger() {
+        return imageHedger;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("retryBudget", budget.getBalance());
+        stats.put("textRetry", textRetry.getStats());
+        stats.put("imageRetry", imageRetry.getStats());
+        stats.put("imageHedge", imageHedger.getStats());
+        return stats;
+    }
+}
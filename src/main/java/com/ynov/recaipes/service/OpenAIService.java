@@ -1,29 +1,56 @@
 package com.ynov.recaipes.service;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ynov.recaipes.dto.ParsedRecipe;
+import com.ynov.recaipes.dto.StructuredRecipe;
+import com.ynov.recaipes.dto.StructuredRecipeCollection;
 import io.github.cdimascio.dotenv.Dotenv;
 import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Service
 public class OpenAIService {
 
     @Autowired
+    @Qualifier("openAiTextRestTemplate")
     private RestTemplate restTemplate;
 
+    @Autowired
+    @Qualifier("openAiImageRestTemplate")
+    private RestTemplate imageRestTemplate;
+
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private OpenAIResilience resilience;
+
     // Supprimez ou commentez cette ligne
     // @Value("${openai.api.key:}")
     private String apiKey;
@@ -34,6 +61,78 @@ public class OpenAIService {
     @Value("${openai.api.url.images:https://api.openai.com/v1/images/generations}")
     private String imagesUrl;
 
+    @Value("${openai.structured-output.enabled:false}")
+    private boolean structuredOutputEnabled;
+
+    // json_schema n'est pas supporté par gpt-4 : il faut un modèle récent
+    @Value("${openai.structured-output.model:gpt-4o-mini}")
+    private String structuredOutputModel;
+
+    // Budget de complétion d'une recette ; une collection de n plats demande n fois ce budget (max_tokens)
+    @Value("${openai.rate-limit.chat.estimated-completion-tokens:1200}")
+    private int completionTokensPerRecipe;
+
+    // Plafond de max_tokens pour une collection : prompt + réponse doivent tenir dans le contexte du modèle
+    @Value("${openai.collection.max-completion-tokens:7000}")
+    private int collectionMaxCompletionTokens;
+
+    private static final String SYSTEM_PROMPT = "Tu es un chef professionnel spécialisé dans la cuisine du monde entier. " +
+            "Crée des recettes détaillées, authentiques et savoureuses. En respectant a la lettre les ingredients de base des plats, si tu as un doute verifier sur marmiton et autres sites";
+
+    private static final Map<String, Object> RECIPE_SCHEMA = Map.of(
+            "type", "object",
+            "properties", Map.of(
+                    "title", Map.of("type", "string"),
+                    "description", Map.of("type", "string"),
+                    "ingredients", Map.of("type", "array", "items", Map.of("type", "string")),
+                    "steps", Map.of("type", "array", "items", Map.of("type", "string"))
+            ),
+            "required", List.of("title", "description", "ingredients", "steps"),
+            "additionalProperties", false
+    );
+
+    private static final Map<String, Object> RECIPE_RESPONSE_FORMAT = Map.of(
+            "type", "json_schema",
+            "json_schema", Map.of(
+                    "name", "recipe",
+                    "strict", true,
+                    "schema", RECIPE_SCHEMA
+            )
+    );
+
+    // Recette d'une complétion groupée : le numéro du plat la rattache à sa demande, quel que soit l'ordre
+    private static final Map<String, Object> COLLECTION_ITEM_SCHEMA = Map.of(
+            "type", "object",
+            "properties", Map.of(
+                    "dishNumber", Map.of("type", "integer"),
+                    "title", Map.of("type", "string"),
+                    "description", Map.of("type", "string"),
+                    "ingredients", Map.of("type", "array", "items", Map.of("type", "string")),
+                    "steps", Map.of("type", "array", "items", Map.of("type", "string"))
+            ),
+            "required", List.of("dishNumber", "title", "description", "ingredients", "steps"),
+            "additionalProperties", false
+    );
+
+    private static final Map<String, Object> RECIPE_COLLECTION_RESPONSE_FORMAT = Map.of(
+            "type", "json_schema",
+            "json_schema", Map.of(
+                    "name", "recipes",
+                    "strict", true,
+                    "schema", Map.of(
+                            "type", "object",
+                            "properties", Map.of(
+                                    "recipes", Map.of("type", "array", "items", COLLECTION_ITEM_SCHEMA)
+                            ),
+                            "required", List.of("recipes"),
+                            "additionalProperties", false
+                    )
+            )
+    );
+
+    // Séparateur imposé entre les recettes quand la complétion est en texte libre
+    private static final Pattern RECIPE_DELIMITER = Pattern.compile("(?m)^\\s*=+\\s*RECETTE\\s*(\\d*)\\s*=+\\s*$");
+
     // Ajoutez cette méthode
     @PostConstruct
     public void init() {
@@ -51,10 +150,272 @@ public class OpenAIService {
     }
 
     public String generateRecipeText(String dishName) {
-        HttpHeaders headers = createHeaders();
+        HttpEntity<Map<String, Object>> request = new HttpEntity<>(buildRecipeTextRequest(dishName, false), createHeaders());
+
+        try {
+            Map<String, Object> response = resilience.getTextRetry().execute(
+                    () -> restTemplate.postForObject(completionsUrl, request, Map.class));
+            List<Map<String, Object>> choices = (List<Map<String, Object>>) response.get("choices");
+            Map<String, Object> message = (Map<String, Object>) choices.get(0).get("message");
+            return (String) message.get("content");
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to generate recipe text: " + e.getMessage(), e);
+        }
+    }
+
+    public boolean isStructuredOutputEnabled() {
+        return structuredOutputEnabled;
+    }
+
+    /**
+     * Génère la recette en mode "structured output" : l'API est contrainte par un schéma JSON
+     * (titre, description, liste d'ingrédients, étapes) et la réponse est désérialisée directement,
+     * sans passer par l'analyse du texte libre.
+     */
+    public StructuredRecipe generateStructuredRecipe(String dishName) {
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("model", structuredOutputModel);
+        requestBody.put("response_format", RECIPE_RESPONSE_FORMAT);
+        requestBody.put("messages", List.of(
+                Map.of("role", "system", "content", SYSTEM_PROMPT),
+                Map.of("role", "user", "content", String.format(
+                        "Crée une recette détaillée en français pour '%s'. " +
+                                "Donne le nom du plat, les ingrédients avec leurs quantités, les étapes dans l'ordre " +
+                                "(une étape par élément, sans numéro) et une brève description.",
+                        dishName))
+        ));
+        String content = postForMessageContent(requestBody);
+
+        try {
+            return objectMapper.readValue(content, StructuredRecipe.class);
+        } catch (IOException e) {
+            throw new IncompleteRecipeException("Structured recipe does not match the schema: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Génère plusieurs recettes en une seule complétion (un menu, les plats d'un thème) :
+     * le prompt système et l'aller-retour ne sont payés qu'une fois.
+     * En mode JSON la réponse suit un schéma ; sinon les recettes sont séparées par une ligne "=== RECETTE n ===".
+     * Chaque recette est rattachée à son plat par son numéro n, pas par sa position dans la réponse.
+     * La liste retournée a un élément par plat, dans l'ordre de {@code dishNames} ; il est null si le modèle
+     * a omis le plat ou si son numéro est absent, invalide ou en double.
+     */
+    public List<ParsedRecipe> generateRecipeCollection(List<String> dishNames) {
+        StringBuilder dishes = new StringBuilder();
+        for (int i = 0; i < dishNames.size(); i++) {
+            dishes.append(i + 1).append(". ").append(dishNames.get(i)).append('\n');
+        }
+        // borne la réponse et permet au limiteur de réserver le coût réel de la collection
+        int maxTokens = Math.min(completionTokensPerRecipe * dishNames.size(), collectionMaxCompletionTokens);
+
+        if (structuredOutputEnabled) {
+            Map<String, Object> requestBody = new HashMap<>();
+            requestBody.put("model", structuredOutputModel);
+            requestBody.put("response_format", RECIPE_COLLECTION_RESPONSE_FORMAT);
+            requestBody.put("max_tokens", maxTokens);
+            requestBody.put("messages", List.of(
+                    Map.of("role", "system", "content", SYSTEM_PROMPT),
+                    Map.of("role", "user", "content",
+                            "Crée une recette détaillée en français pour chacun des plats suivants, dans cet ordre :\n" + dishes +
+                                    "Pour chaque recette, donne le numéro du plat dans cette liste (dishNumber), le nom du plat, les ingrédients avec leurs quantités, " +
+                                    "les étapes dans l'ordre (une étape par élément, sans numéro) et une brève description.")
+            ));
+            String content = postForMessageContent(requestBody);
+            try {
+                List<StructuredRecipe> structuredRecipes =
+                        objectMapper.readValue(content, StructuredRecipeCollection.class).getRecipes();
+                List<Integer> numbers = new ArrayList<>();
+                List<ParsedRecipe> recipes = new ArrayList<>();
+                for (StructuredRecipe structured : structuredRecipes) {
+                    ParsedRecipe parsed = structured.toParsedRecipe();
+                    parsed.setTitle(RecipeTextParser.cleanTitle(parsed.getTitle()));
+                    numbers.add(structured.getDishNumber());
+                    recipes.add(parsed);
+                }
+                return assignToDishes(numbers, recipes, dishNames.size());
+            } catch (IOException e) {
+                throw new IncompleteRecipeException("Structured recipes do not match the schema: " + e.getMessage(), e);
+            }
+        }
 
         Map<String, Object> requestBody = new HashMap<>();
         requestBody.put("model", "gpt-4");
+        requestBody.put("max_tokens", maxTokens);
+        requestBody.put("messages", List.of(
+                Map.of("role", "system", "content", SYSTEM_PROMPT),
+                Map.of("role", "user", "content",
+                        "Crée une recette détaillée en français pour chacun des plats suivants, dans cet ordre :\n" + dishes +
+                                "Commence chaque recette par une ligne \"=== RECETTE n ===\" (n = numéro du plat). " +
+                                "Format de chaque recette : TITRE (le nom du plat), INGREDIENTS (avec quantités), " +
+                                "INSTRUCTIONS (étapes numérotées), et une brève DESCRIPTION à la fin.")
+        ));
+        return splitRecipes(postForMessageContent(requestBody), dishNames.size());
+    }
+
+    /**
+     * Découpe une complétion multi-recettes et range chaque recette sous le plat de son séparateur
+     * "=== RECETTE n ===" ; le texte éventuel avant le premier séparateur est ignoré
+     */
+    static List<ParsedRecipe> splitRecipes(String content, int dishCount) {
+        List<Integer> numbers = new ArrayList<>();
+        List<ParsedRecipe> recipes = new ArrayList<>();
+        Matcher matcher = RECIPE_DELIMITER.matcher(content == null ? "" : content);
+        int start = -1;
+        Integer number = null;
+        while (matcher.find()) {
+            if (start >= 0) {
+                numbers.add(number);
+                recipes.add(RecipeTextParser.parse(content.substring(start, matcher.start())));
+            }
+            start = matcher.end();
+            number = matcher.group(1).isEmpty() ? null : Integer.valueOf(matcher.group(1));
+        }
+        if (start >= 0) {
+            numbers.add(number);
+            recipes.add(RecipeTextParser.parse(content.substring(start)));
+        }
+        return assignToDishes(numbers, recipes, dishCount);
+    }
+
+    /**
+     * Range les recettes par numéro de plat (1 à {@code dishCount}). Une recette sans numéro valide est ignorée ;
+     * deux recettes pour le même plat (recettes fusionnées ou décalées) le laissent sans texte : il aura sa
+     * propre génération plutôt qu'un texte peut-être destiné à un autre plat.
+     */
+    static List<ParsedRecipe> assignToDishes(List<Integer> numbers, List<ParsedRecipe> recipes, int dishCount) {
+        ParsedRecipe[] byDish = new ParsedRecipe[dishCount];
+        boolean[] conflict = new boolean[dishCount];
+        for (int i = 0; i < recipes.size(); i++) {
+            Integer number = numbers.get(i);
+            if (number == null || number < 1 || number > dishCount) {
+                System.err.println("⚠️ Recette sans numéro de plat valide ignorée (" + number + ")");
+                continue;
+            }
+            if (byDish[number - 1] != null || conflict[number - 1]) {
+                System.err.println("⚠️ Plusieurs recettes pour le plat " + number + ", génération dédiée");
+                byDish[number - 1] = null;
+                conflict[number - 1] = true;
+                continue;
+            }
+            byDish[number - 1] = recipes.get(i);
+        }
+        return Arrays.asList(byDish);
+    }
+
+    private String postForMessageContent(Map<String, Object> requestBody) {
+        HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, createHeaders());
+        try {
+            return resilience.getTextRetry().execute(() -> restTemplate.execute(completionsUrl, HttpMethod.POST,
+                    restTemplate.httpEntityCallback(request),
+                    response -> {
+                        try (JsonParser parser = objectMapper.getFactory().createParser(response.getBody())) {
+                            return readMessageContent(parser);
+                        }
+                    }));
+        } catch (IncompleteRecipeException e) {
+            throw e;
+        } catch (Exception e) {
+            // y compris les IllegalStateException du limiteur de débit (quota, interruption)
+            throw new RuntimeException("OpenAI completion failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Lit choices[0].message.content en flux, sans construire l'arbre complet de la réponse.
+     * La lecture s'arrête dès que le contenu du premier choix est trouvé.
+     */
+    static String readMessageContent(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Unexpected completion response");
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if ("choices".equals(field) && value == JsonToken.START_ARRAY) {
+                if (parser.nextToken() == JsonToken.START_OBJECT) {
+                    return readChoiceContent(parser);
+                }
+                break;
+            }
+            parser.skipChildren();
+        }
+        throw new IOException("Completion response has no choices");
+    }
+
+    private static String readChoiceContent(JsonParser parser) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if ("message".equals(field) && value == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String messageField = parser.getCurrentName();
+                    JsonToken messageValue = parser.nextToken();
+                    if ("refusal".equals(messageField) && messageValue == JsonToken.VALUE_STRING) {
+                        throw new IncompleteRecipeException("The AI refused to generate the recipe: " + parser.getText());
+                    }
+                    if ("content".equals(messageField) && messageValue == JsonToken.VALUE_STRING) {
+                        return parser.getText();
+                    }
+                    parser.skipChildren();
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        throw new IOException("Completion response has no message content");
+    }
+
+    /**
+     * Génère le texte de la recette en streaming (server-sent events de l'API chat completions).
+     * Chaque fragment reçu est transmis à {@code onToken} dès son arrivée ; le texte complet est retourné à la fin.
+     * Une erreur transitoire n'est relancée que si aucun fragment n'a encore été transmis.
+     */
+    public String streamRecipeText(String dishName, Consumer<String> onToken) {
+        HttpEntity<Map<String, Object>> request = new HttpEntity<>(buildRecipeTextRequest(dishName, true), createHeaders());
+        AtomicBoolean emitted = new AtomicBoolean();
+        Consumer<String> trackingOnToken = token -> {
+            emitted.set(true);
+            onToken.accept(token);
+        };
+
+        try {
+            return resilience.getTextRetry().execute(() -> restTemplate.execute(completionsUrl, HttpMethod.POST,
+                    restTemplate.httpEntityCallback(request),
+                    response -> readCompletionStream(response.getBody(), trackingOnToken)),
+                    () -> !emitted.get());
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to stream recipe text: " + e.getMessage(), e);
+        }
+    }
+
+    private String readCompletionStream(InputStream body, Consumer<String> onToken) throws IOException {
+        StringBuilder content = new StringBuilder();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (!line.startsWith("data:")) {
+                continue;
+            }
+            String data = line.substring(5).trim();
+            if ("[DONE]".equals(data)) {
+                break;
+            }
+            JsonNode delta = objectMapper.readTree(data).path("choices").path(0).path("delta").path("content");
+            if (delta.isTextual() && !delta.asText().isEmpty()) {
+                content.append(delta.asText());
+                onToken.accept(delta.asText());
+            }
+        }
+        return content.toString();
+    }
+
+    private Map<String, Object> buildRecipeTextRequest(String dishName, boolean stream) {
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("model", "gpt-4");
+        if (stream) {
+            requestBody.put("stream", true);
+        }
 
         String prompt = String.format(
                 "Crée une recette détaillée en français pour '%s'" +
@@ -66,25 +427,14 @@ public class OpenAIService {
         requestBody.put("messages", List.of(
                 Map.of(
                         "role", "system",
-                        "content", "Tu es un chef professionnel spécialisé dans la cuisine du monde entier. " +
-                                "Crée des recettes détaillées, authentiques et savoureuses. En respectant a la lettre les ingredients de base des plats, si tu as un doute verifier sur marmiton et autres sites"
+                        "content", SYSTEM_PROMPT
                 ),
                 Map.of(
                         "role", "user",
                         "content", prompt
                 )
         ));
-
-        HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
-
-        try {
-            Map<String, Object> response = restTemplate.postForObject(completionsUrl, request, Map.class);
-            List<Map<String, Object>> choices = (List<Map<String, Object>>) response.get("choices");
-            Map<String, Object> message = (Map<String, Object>) choices.get(0).get("message");
-            return (String) message.get("content");
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to generate recipe text: " + e.getMessage(), e);
-        }
+        return requestBody;
     }
 
     public String generateRecipeImage(String recipeTitle) {
@@ -99,7 +449,8 @@ public class OpenAIService {
         HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
 
         try {
-            Map<String, Object> response = restTemplate.postForObject(imagesUrl, request, Map.class);
+            Map<String, Object> response = resilience.getImageRetry().execute(() -> resilience.getImageHedger().call(
+                    () -> imageRestTemplate.postForObject(imagesUrl, request, Map.class)));
             List<Map<String, Object>> data = (List<Map<String, Object>>) response.get("data");
             return (String) data.get(0).get("url");
         } catch (Exception e) {
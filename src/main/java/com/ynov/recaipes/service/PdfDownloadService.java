@@ -0,0 +1,79 @@
+package com.ynov.recaipes.service;
+
+import com.ynov.recaipes.model.PdfMetadata;
+import com.ynov.recaipes.model.Recipe;
+import com.ynov.recaipes.repository.PdfMetadataRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.regex.Pattern;
+
+/**
+ * Retrouve la copie locale du PDF d'une recette et son empreinte SHA-256 (ETag fort).
+ * L'empreinte vient des métadonnées (calculée à l'écriture) ou du nom de l'objet en stockage adressé par contenu ;
+ * elle n'est recalculée que pour les anciens PDF, puis enregistrée.
+ */
+@Service
+@RequiredArgsConstructor
+public class PdfDownloadService {
+
+    private static final Pattern SHA256_NAME = Pattern.compile("[0-9a-f]{64}(\\..*)?");
+
+    private final PdfMetadataRepository pdfMetadataRepository;
+
+    public record LocalPdf(Path path, String fileName, long length, String contentHash) {
+    }
+
+    /**
+     * @return null si aucune copie locale n'est disponible (PDF uniquement distant, ou fichier supprimé)
+     */
+    public LocalPdf findLocalPdf(Recipe recipe) throws IOException {
+        PdfMetadata metadata = pdfMetadataRepository.findByRecipeId(recipe.getId());
+        if (metadata != null && metadata.getLocalPath() != null) {
+            LocalPdf pdf = fromMetadata(metadata);
+            if (pdf != null) {
+                return pdf;
+            }
+        }
+
+        String pdfUrl = recipe.getPdfUrl();
+        if (pdfUrl == null || !pdfUrl.startsWith("file://")) {
+            return null;
+        }
+        String localPath = pdfUrl.substring(7).split("\\|\\|")[0];
+
+        // copie issue du cache : même fichier que la recette d'origine
+        PdfMetadata original = pdfMetadataRepository.findFirstByLocalPath(localPath);
+        if (original != null) {
+            LocalPdf pdf = fromMetadata(original);
+            if (pdf != null) {
+                return pdf;
+            }
+        }
+
+        Path path = Paths.get(localPath);
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        String fileName = path.getFileName().toString();
+        String hash = SHA256_NAME.matcher(fileName).matches() ? fileName.substring(0, 64) : LocalStorageProvider.sha256(path);
+        return new LocalPdf(path, "recipe_" + recipe.getId() + ".pdf", Files.size(path), hash);
+    }
+
+    private LocalPdf fromMetadata(PdfMetadata metadata) throws IOException {
+        Path path = Paths.get(metadata.getLocalPath());
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        if (metadata.getContentHash() == null) {
+            metadata.setContentHash(LocalStorageProvider.sha256(path));
+            pdfMetadataRepository.save(metadata);
+        }
+        String fileName = metadata.getFileName() != null ? metadata.getFileName() : path.getFileName().toString();
+        return new LocalPdf(path, fileName, Files.size(path), metadata.getContentHash());
+    }
+}
@@ -0,0 +1,102 @@
+package com.ynov.recaipes.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.fontbox.ttf.TTFParser;
+import org.apache.fontbox.ttf.TrueTypeFont;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Polices des PDF. Les fichiers TrueType ({@code pdf.font.regular}, {@code pdf.font.bold} ; par défaut DejaVu Sans,
+ * fournie dans le classpath sous {@code fonts/}) sont analysés une seule fois au démarrage et partagés entre tous
+ * les rendus ; chaque document n'embarque que le sous-ensemble des glyphes qu'il utilise.
+ * Si une police configurée est introuvable, Helvetica (standard 14, Latin-1 seulement) la remplace.
+ * Dans les deux cas, {@link TextLayout#renderable(String)} remplace les caractères sans glyphe au lieu d'échouer.
+ */
+@Component
+public class PdfFonts {
+
+    @Value("${pdf.font.regular:classpath:fonts/DejaVuSans.ttf}")
+    private Resource regularFontResource;
+
+    @Value("${pdf.font.bold:classpath:fonts/DejaVuSans-Bold.ttf}")
+    private Resource boldFontResource;
+
+    private TrueTypeFont regularTtf;
+    private TrueTypeFont boldTtf;
+
+    // Document jamais enregistré, porteur des polices servant aux mesures (TextLayout)
+    private PDDocument measureDocument;
+    private TextLayout regularLayout;
+    private TextLayout boldLayout;
+
+    public record DocumentFonts(PDFont regular, PDFont bold) {
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        regularTtf = parse(regularFontResource);
+        boldTtf = parse(boldFontResource);
+        measureDocument = new PDDocument();
+        regularLayout = TextLayout.of(regularTtf != null ? PDType0Font.load(measureDocument, regularTtf, true) : PDType1Font.HELVETICA);
+        boldLayout = TextLayout.of(boldTtf != null ? PDType0Font.load(measureDocument, boldTtf, true) : PDType1Font.HELVETICA_BOLD);
+        System.out.println("🔤 Polices PDF: " + describe(regularFontResource, regularTtf) + ", " + describe(boldFontResource, boldTtf));
+    }
+
+    private static TrueTypeFont parse(Resource resource) {
+        if (resource == null || !resource.exists()) {
+            System.err.println("⚠️ Police introuvable (" + resource + "), Helvetica utilisée : caractères hors Latin-1 remplacés");
+            return null;
+        }
+        // chargée en mémoire : lecture concurrente sans fichier ouvert
+        try (InputStream in = resource.getInputStream()) {
+            return new TTFParser().parse(in);
+        } catch (IOException e) {
+            System.err.println("⚠️ Police illisible (" + resource + "): " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static String describe(Resource resource, TrueTypeFont ttf) {
+        return ttf != null ? resource.getFilename() + " (sous-ensemble embarqué)" : "Helvetica (police introuvable: " + resource + ")";
+    }
+
+    /**
+     * Polices à utiliser dans un document ; sans analyse du fichier, seulement les dictionnaires PDF
+     */
+    public DocumentFonts forDocument(PDDocument document) throws IOException {
+        PDFont regular = regularTtf != null ? PDType0Font.load(document, regularTtf, true) : PDType1Font.HELVETICA;
+        PDFont bold = boldTtf != null ? PDType0Font.load(document, boldTtf, true) : PDType1Font.HELVETICA_BOLD;
+        return new DocumentFonts(regular, bold);
+    }
+
+    public TextLayout regularLayout() {
+        return regularLayout;
+    }
+
+    public TextLayout boldLayout() {
+        return boldLayout;
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (measureDocument != null) {
+            measureDocument.close();
+        }
+        if (regularTtf != null) {
+            regularTtf.close();
+        }
+        if (boldTtf != null) {
+            boldTtf.close();
+        }
+    }
+}
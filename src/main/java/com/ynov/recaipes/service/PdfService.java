@@ -8,24 +8,33 @@ import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
-import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.PDFont;
 import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 @RequiredArgsConstructor
 public class PdfService {
     private final PdfMetadataRepository pdfMetadataRepository;
     private final StorageService storageService;
+    private final UploadOutboxService uploadOutboxService;
+    private final PdfFonts pdfFonts;
 
     // Constantes pour la mise en page
     private static final float MARGIN = 50;
@@ -34,9 +43,6 @@ public class PdfService {
     private static final float TEXT_WIDTH = PAGE_WIDTH - (2 * MARGIN);
     private static final float TOP_MARGIN = PAGE_HEIGHT - MARGIN;
     private static final float BOTTOM_MARGIN = MARGIN + 30;
-    private static final PDType1Font TITLE_FONT = PDType1Font.HELVETICA_BOLD;
-    private static final PDType1Font SECTION_FONT = PDType1Font.HELVETICA_BOLD;
-    private static final PDType1Font TEXT_FONT = PDType1Font.HELVETICA;
     private static final float TITLE_SIZE = 24;
     private static final float SECTION_SIZE = 16;
     private static final float TEXT_SIZE = 12;
@@ -45,15 +51,44 @@ public class PdfService {
     @Value("${pdf.storage.local.path}")
     private String localStoragePath;
 
+    // Taille du dernier PDF généré, pour dimensionner le tampon du suivant sans réallocation
+    private final AtomicInteger lastPdfSize = new AtomicInteger(64 * 1024);
+
     // Classe pour stocker l'état de la génération PDF
     private static class PdfState {
         PDDocument document;
         PDPageContentStream contentStream;
         PDPage currentPage;
         float yPosition;
+
+        // Titres en gras, texte en regular (police partagée, sous-ensemble propre au document)
+        PDFont boldFont;
+        PDFont textFont;
+
+        // Objet texte (BT ... ET) en cours : les lignes d'une section y sont ajoutées par déplacements relatifs
+        boolean inText;
+        PDFont currentFont;
+        float textFontSize;
+        float textLeading;
+        float textLineY;
     }
 
     public PdfMetadata generateAndSavePdf(Recipe recipe) throws IOException {
+        byte[] imageBytes = null;
+        if (recipe.getImageUrl() != null && !recipe.getImageUrl().isEmpty()) {
+            try {
+                imageBytes = storageService.downloadImageBytes(recipe.getImageUrl());
+            } catch (Exception e) {
+                System.err.println("Warning: Failed to download image: " + e.getMessage());
+            }
+        }
+        return generateAndSavePdf(recipe, imageBytes);
+    }
+
+    /**
+     * Génère le PDF à partir d'une image déjà téléchargée (null si aucune image)
+     */
+    public PdfMetadata generateAndSavePdf(Recipe recipe, byte[] imageBytes) throws IOException {
         // Préparer le dossier de stockage
         Path localPath = Paths.get(localStoragePath);
         if (!Files.exists(localPath)) {
@@ -67,9 +102,12 @@ public class PdfService {
         // Créer l'état initial du PDF
         PdfState state = new PdfState();
         state.document = new PDDocument();
+        PdfFonts.DocumentFonts fonts = pdfFonts.forDocument(state.document);
+        state.boldFont = fonts.bold();
+        state.textFont = fonts.regular();
         state.currentPage = new PDPage(PDRectangle.A4);
         state.document.addPage(state.currentPage);
-        state.contentStream = new PDPageContentStream(state.document, state.currentPage);
+        state.contentStream = newContentStream(state);
         state.yPosition = TOP_MARGIN;
 
         try {
@@ -80,15 +118,9 @@ public class PdfService {
             state.yPosition -= 20; // Espace après le titre
 
             // Ajouter l'image si présente
-            if (recipe.getImageUrl() != null && !recipe.getImageUrl().isEmpty()) {
+            if (imageBytes != null && imageBytes.length > 0) {
                 try {
-                    String imagePath = storageService.downloadImage(recipe.getImageUrl(), localStoragePath);
-                    File imgFile = new File(imagePath);
-
-                    if (imgFile.exists() && imgFile.length() > 0) {
-                        drawImage(state, imgFile);
-                        Files.deleteIfExists(Paths.get(imagePath)); // Supprimer fichier temporaire
-                    }
+                    drawImage(state, imageBytes);
                 } catch (Exception e) {
                     System.err.println("Warning: Failed to process image: " + e.getMessage());
                 }
@@ -105,14 +137,17 @@ public class PdfService {
             drawSection(state, "Instructions", instructions);
 
             // Fermer le dernier contentStream
+            endText(state);
             state.contentStream.close();
 
-            // Sauvegarder le PDF
-            state.document.save(filePath);
+            // Rendu en mémoire, dans un tampon dimensionné d'après le PDF précédent : le PDF est envoyé au stockage
+            // sans fichier intermédiaire, et écrit au plus une fois sur disque
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(lastPdfSize.get() + lastPdfSize.get() / 4);
+            state.document.save(buffer);
             state.document.close();
-
-            // Enregistrer les métadonnées
-            File pdfFile = new File(filePath);
+            byte[] pdfBytes = buffer.toByteArray();
+            lastPdfSize.set(pdfBytes.length);
+            String contentHash = HexFormat.of().formatHex(sha256().digest(pdfBytes));
 
             // AMÉLIORATION : Préparation des tags personnalisés avec vérification du titre
             Map<String, String> customTags = new HashMap<>();
@@ -142,7 +177,27 @@ public class PdfService {
             System.out.println("  - tag2 (titre): " + customTags.get("tag2"));
             System.out.println("  - tag3 (ref): " + customTags.get("tag3"));
 
-            String uploadResult = storageService.uploadFile(pdfFile, "application/pdf", customTags);
+            if (uploadOutboxService.isEnabled()) {
+                // Write-behind : réponse immédiate avec l'URL locale, l'upload distant est fait en tâche de fond
+                writeAtomically(Paths.get(filePath), pdfBytes);
+                String provisionalUrl = "file://" + filePath;
+                recipe.setPdfUrl(provisionalUrl);
+
+                PdfMetadata metadata = new PdfMetadata();
+                metadata.setFileName(fileName);
+                metadata.setContentType("application/pdf");
+                metadata.setFileSize((long) pdfBytes.length);
+                metadata.setS3Url(provisionalUrl);
+                metadata.setLocalPath(filePath);
+                metadata.setContentHash(contentHash);
+                metadata.setRecipe(recipe);
+                PdfMetadata saved = pdfMetadataRepository.save(metadata);
+
+                uploadOutboxService.enqueue(recipe.getId(), filePath, "application/pdf", customTags, provisionalUrl);
+                return saved;
+            }
+
+            String uploadResult = storageService.uploadBytes(pdfBytes, fileName, "application/pdf", customTags);
 
             // Extraire l'URL et l'ID interne du serveur
             String s3Url;
@@ -179,9 +234,11 @@ public class PdfService {
             PdfMetadata metadata = new PdfMetadata();
             metadata.setFileName(fileName);
             metadata.setContentType("application/pdf");
-            metadata.setFileSize(pdfFile.length());
+            metadata.setFileSize((long) pdfBytes.length);
             metadata.setS3Url(s3Url);
-            metadata.setLocalPath(filePath);
+            // copie locale uniquement si le stockage local a servi de secours
+            metadata.setLocalPath(s3Url.startsWith("file://") ? s3Url.substring(7) : null);
+            metadata.setContentHash(contentHash);
             metadata.setRecipe(recipe);
 
             return pdfMetadataRepository.save(metadata);
@@ -201,6 +258,28 @@ public class PdfService {
         }
     }
 
+    /**
+     * Écrit à côté puis renomme atomiquement : un lecteur ne voit jamais de PDF partiel, et un objet local
+     * lié physiquement à un ancien fichier du même nom n'est pas modifié
+     */
+    private static void writeAtomically(Path target, byte[] content) throws IOException {
+        Path tempFile = target.resolveSibling(target.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            Files.write(tempFile, content);
+            Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
     private String extractSectionText(String text, String... prefixes) {
         if (text == null || text.isEmpty()) {
             return "";
@@ -231,19 +310,27 @@ public class PdfService {
     private void checkPageBreak(PdfState state, float neededSpace) throws IOException {
         if (state.yPosition - neededSpace < BOTTOM_MARGIN) {
             // Fermer la page actuelle
+            endText(state);
             state.contentStream.close();
 
             // Créer une nouvelle page
             state.currentPage = new PDPage(PDRectangle.A4);
             state.document.addPage(state.currentPage);
-            state.contentStream = new PDPageContentStream(state.document, state.currentPage);
+            state.contentStream = newContentStream(state);
             state.yPosition = TOP_MARGIN;
         }
     }
 
+    // Flux de contenu compressé (Flate)
+    private static PDPageContentStream newContentStream(PdfState state) throws IOException {
+        return new PDPageContentStream(state.document, state.currentPage, PDPageContentStream.AppendMode.OVERWRITE, true);
+    }
+
     // Dessiner le titre
     private void drawTitle(PdfState state, String title) throws IOException {
-        float titleWidth = TITLE_FONT.getStringWidth(title) / 1000 * TITLE_SIZE;
+        TextLayout layout = pdfFonts.boldLayout();
+        title = layout.renderable(title);
+        float titleWidth = layout.width(title, TITLE_SIZE);
 
         // Si le titre est trop long, réduire la taille
         float fontSize = TITLE_SIZE;
@@ -251,21 +338,13 @@ public class PdfService {
             fontSize = TITLE_SIZE * TEXT_WIDTH / titleWidth;
         }
 
-        // Vérifier l'espace disponible
-        checkPageBreak(state, fontSize * LINE_SPACING);
-
-        state.contentStream.beginText();
-        state.contentStream.setFont(TITLE_FONT, fontSize);
-        state.contentStream.newLineAtOffset(MARGIN, state.yPosition);
-        state.contentStream.showText(title);
-        state.contentStream.endText();
-
-        state.yPosition -= (fontSize * LINE_SPACING);
+        drawTextLine(state, state.boldFont, fontSize, fontSize * LINE_SPACING, title);
+        endText(state);
     }
 
     // Dessiner une image
-    private void drawImage(PdfState state, File imgFile) throws IOException {
-        PDImageXObject image = PDImageXObject.createFromFileByContent(imgFile, state.document);
+    private void drawImage(PdfState state, byte[] imageBytes) throws IOException {
+        PDImageXObject image = PDImageXObject.createFromByteArray(state.document, imageBytes, "recipe-image");
 
         // Calculer les dimensions de l'image proportionnellement
         float imageWidth = TEXT_WIDTH;
@@ -279,22 +358,13 @@ public class PdfService {
         state.yPosition -= (imageHeight + 20); // Espace après l'image
     }
 
-    // Dessiner une section complète (titre + contenu)
+    // Dessiner une section complète (titre + contenu) dans un seul objet texte
     private void drawSection(PdfState state, String title, String content) throws IOException {
-        // Vérifier l'espace pour le titre
-        checkPageBreak(state, SECTION_SIZE * LINE_SPACING);
-
-        // Dessiner le titre de section
-        state.contentStream.beginText();
-        state.contentStream.setFont(SECTION_FONT, SECTION_SIZE);
-        state.contentStream.newLineAtOffset(MARGIN, state.yPosition);
-        state.contentStream.showText(title);
-        state.contentStream.endText();
-
-        state.yPosition -= SECTION_SIZE * LINE_SPACING;
+        drawTextLine(state, state.boldFont, SECTION_SIZE, SECTION_SIZE * LINE_SPACING, pdfFonts.boldLayout().renderable(title));
 
         // Dessiner le contenu
         drawMultilineText(state, content);
+        endText(state);
         state.yPosition -= 10; // Espace après la section
     }
 
@@ -305,65 +375,54 @@ public class PdfService {
             return;
         }
 
-        // Nettoyer le texte
-        text = text.replace("\r\n", "\n").replace("\r", "\n");
-
-        // Diviser par lignes existantes
-        String[] lines = text.split("\n");
-
-        for (String line : lines) {
-            // Couper les lignes trop longues
-            float lineWidth = TEXT_FONT.getStringWidth(line) / 1000 * TEXT_SIZE;
-            if (lineWidth <= TEXT_WIDTH) {
-                // La ligne tient sur la largeur
-                drawTextLine(state, line);
-            } else {
-                // Diviser en plusieurs lignes
-                String[] words = line.split(" ");
-                StringBuilder currentLine = new StringBuilder();
-
-                for (String word : words) {
-                    String testLine = currentLine.toString() + (currentLine.length() > 0 ? " " : "") + word;
-                    float testWidth = TEXT_FONT.getStringWidth(testLine) / 1000 * TEXT_SIZE;
-
-                    if (testWidth <= TEXT_WIDTH) {
-                        // Ajouter le mot à la ligne actuelle
-                        if (currentLine.length() > 0) {
-                            currentLine.append(" ");
-                        }
-                        currentLine.append(word);
-                    } else {
-                        // Dessiner la ligne actuelle et commencer une nouvelle ligne
-                        if (currentLine.length() > 0) {
-                            drawTextLine(state, currentLine.toString());
-                            currentLine = new StringBuilder(word);
-                        } else {
-                            // Le mot est plus long que la largeur disponible
-                            drawTextLine(state, word);
-                        }
-                    }
-                }
-
-                // Dessiner la dernière ligne
-                if (currentLine.length() > 0) {
-                    drawTextLine(state, currentLine.toString());
-                }
-            }
+        // Découpage en une passe (largeurs cumulées à partir de la table d'avances de la police)
+        // Caractères sans glyphe remplacés avant la mise en page : showText ne peut plus échouer
+        TextLayout layout = pdfFonts.regularLayout();
+        for (String line : layout.wrap(layout.renderable(text), TEXT_SIZE, TEXT_WIDTH)) {
+            drawTextLine(state, state.textFont, TEXT_SIZE, TEXT_SIZE, line);
         }
     }
 
-    // Dessiner une seule ligne de texte, avec gestion des sauts de page
-    private void drawTextLine(PdfState state, String line) throws IOException {
+    /**
+     * Dessine une ligne dans l'objet texte en cours (ouvert au besoin) : la police n'est redéfinie que si elle change,
+     * et la ligne est placée par rapport à la précédente (T* si l'interligne est le même, Td sinon)
+     */
+    private void drawTextLine(PdfState state, PDFont font, float fontSize, float neededSpace, String line) throws IOException {
         // Vérifier l'espace disponible
-        checkPageBreak(state, TEXT_SIZE);
+        checkPageBreak(state, neededSpace);
+
+        PDPageContentStream stream = state.contentStream;
+        float leading = fontSize * LINE_SPACING;
+        if (!state.inText) {
+            stream.beginText();
+            stream.newLineAtOffset(MARGIN, state.yPosition);
+            state.inText = true;
+            state.currentFont = null;
+            state.textLeading = 0;
+        } else if (state.textLineY - state.yPosition == state.textLeading) {
+            stream.newLine();
+        } else {
+            stream.newLineAtOffset(0, state.yPosition - state.textLineY);
+        }
+        if (font != state.currentFont || fontSize != state.textFontSize) {
+            stream.setFont(font, fontSize);
+            state.currentFont = font;
+            state.textFontSize = fontSize;
+        }
+        if (leading != state.textLeading) {
+            stream.setLeading(leading);
+            state.textLeading = leading;
+        }
+        stream.showText(line);
 
-        // Dessiner la ligne
-        state.contentStream.beginText();
-        state.contentStream.setFont(TEXT_FONT, TEXT_SIZE);
-        state.contentStream.newLineAtOffset(MARGIN, state.yPosition);
-        state.contentStream.showText(line);
-        state.contentStream.endText();
+        state.textLineY = state.yPosition;
+        state.yPosition -= leading;
+    }
 
-        state.yPosition -= (TEXT_SIZE * LINE_SPACING);
+    private static void endText(PdfState state) throws IOException {
+        if (state.inText) {
+            state.contentStream.endText();
+            state.inText = false;
+        }
     }
-}
\ No newline at end of file
+}
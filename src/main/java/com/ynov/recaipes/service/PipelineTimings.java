@@ -0,0 +1,50 @@
+package com.ynov.recaipes.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Chronométrage des étapes d'une génération de recette.
+ * Les étapes pouvant se chevaucher, la somme des durées est comparée au temps total réel.
+ */
+public class PipelineTimings {
+
+    private final long startNanos = System.nanoTime();
+    private final Map<String, Long> stageMillis = new LinkedHashMap<>();
+
+    public <T> T time(String stage, Supplier<T> action) {
+        long start = System.nanoTime();
+        try {
+            return action.get();
+        } finally {
+            record(stage, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    public synchronized void record(String stage, long millis) {
+        stageMillis.merge(stage, millis, Long::sum);
+    }
+
+    public synchronized Map<String, Long> getStageMillis() {
+        return new LinkedHashMap<>(stageMillis);
+    }
+
+    public synchronized long getSumOfStagesMillis() {
+        return stageMillis.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    public long getTotalMillis() {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    public String summary() {
+        long total = getTotalMillis();
+        long sum = getSumOfStagesMillis();
+        String stages = getStageMillis().entrySet().stream()
+                .map(e -> e.getKey() + "=" + e.getValue() + "ms")
+                .collect(Collectors.joining(", "));
+        return stages + " | somme=" + sum + "ms, total=" + total + "ms, gain=" + Math.max(0, sum - total) + "ms";
+    }
+}
@@ -0,0 +1,115 @@
+package com.ynov.recaipes.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache borné (LRU + TTL) des recettes générées, partagé entre utilisateurs.
+ * Clé : nom de plat normalisé ({@link DishNameNormalizer}), valeur : id de la recette source.
+ */
+@Component
+public class RecipeCache {
+
+    @Value("${recipe.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${recipe.cache.max-size:500}")
+    private int maxSize;
+
+    @Value("${recipe.cache.ttl-minutes:1440}")
+    private long ttlMinutes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    // Ordre d'accès pour l'éviction LRU
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            if (size() > maxSize) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    public Optional<Long> lookup(String dishName) {
+        String key = DishNameNormalizer.normalize(dishName);
+        if (!enabled || key.isEmpty()) {
+            return Optional.empty();
+        }
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && isExpired(entry)) {
+                entries.remove(key);
+                evictions.increment();
+                entry = null;
+            }
+            if (entry == null) {
+                misses.increment();
+                return Optional.empty();
+            }
+            hits.increment();
+            return Optional.of(entry.recipeId);
+        }
+    }
+
+    public void put(String dishName, Long recipeId) {
+        String key = DishNameNormalizer.normalize(dishName);
+        if (!enabled || key.isEmpty() || recipeId == null) {
+            return;
+        }
+        synchronized (entries) {
+            entries.put(key, new Entry(recipeId, System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * Une entrée dont la recette source n'existe plus ne doit plus être servie
+     */
+    public void invalidateRecipe(Long recipeId) {
+        synchronized (entries) {
+            Iterator<Entry> it = entries.values().iterator();
+            while (it.hasNext()) {
+                if (it.next().recipeId.equals(recipeId)) {
+                    it.remove();
+                    evictions.increment();
+                }
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return Map.of(
+                "enabled", enabled,
+                "size", size,
+                "maxSize", maxSize,
+                "hits", hitCount,
+                "misses", missCount,
+                "evictions", evictions.sum(),
+                "hitRatio", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount)
+        );
+    }
+
+    private boolean isExpired(Entry entry) {
+        return System.currentTimeMillis() - entry.createdAt > TimeUnit.MINUTES.toMillis(ttlMinutes);
+    }
+
+    private record Entry(Long recipeId, long createdAt) {
+    }
+}
@@ -0,0 +1,106 @@
+package com.ynov.recaipes.service;
+
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Détection incrémentale des sections d'une recette à partir des fragments reçus en streaming.
+ * Chaque ligne complète est examinée une seule fois ; un en-tête (TITRE, INGREDIENTS, INSTRUCTIONS,
+ * DESCRIPTION, y compris en markdown ou accentué) déclenche un événement de section.
+ */
+public class RecipeSectionDetector {
+
+    private static final Pattern HEADER = Pattern.compile(
+            "^[\\s#*_\\-]*(TITRE|TITLE|INGR[EÉ]DIENTS?|INSTRUCTIONS?|PR[EÉ]PARATION|[EÉ]TAPES|DESCRIPTION)(?!\\p{L})[\\s*:_\\-]*(.*)$",
+            Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+    private static final Pattern TITLE_DECORATION = Pattern.compile("^[\\s*#_\\-]+|[\\s*#_\\-]+$");
+
+    private final Consumer<String> onSection;
+    private final Consumer<String> onTitle;
+    private final StringBuilder currentLine = new StringBuilder();
+
+    private boolean awaitingTitle;
+    private boolean titleFound;
+
+    public RecipeSectionDetector(Consumer<String> onSection, Consumer<String> onTitle) {
+        this.onSection = onSection;
+        this.onTitle = onTitle;
+    }
+
+    public void accept(String token) {
+        for (int i = 0; i < token.length(); i++) {
+            char c = token.charAt(i);
+            if (c == '\n') {
+                processLine(currentLine.toString());
+                currentLine.setLength(0);
+            } else if (c != '\r' && c != '\uFEFF') {
+                currentLine.append(c);
+            }
+        }
+    }
+
+    /**
+     * À appeler en fin de flux pour traiter la dernière ligne
+     */
+    public void finish() {
+        if (currentLine.length() > 0) {
+            processLine(currentLine.toString());
+            currentLine.setLength(0);
+        }
+    }
+
+    private void processLine(String line) {
+        if (line.isBlank()) {
+            return;
+        }
+
+        Matcher matcher = HEADER.matcher(line);
+        if (matcher.matches()) {
+            String section = canonicalSection(matcher.group(1));
+            onSection.accept(section);
+            if ("TITRE".equals(section) && !titleFound) {
+                String rest = cleanTitle(matcher.group(2));
+                if (rest.isEmpty()) {
+                    awaitingTitle = true;
+                } else {
+                    emitTitle(rest);
+                }
+            } else {
+                awaitingTitle = false;
+            }
+            return;
+        }
+
+        if (awaitingTitle) {
+            awaitingTitle = false;
+            String title = cleanTitle(line);
+            if (!title.isEmpty()) {
+                emitTitle(title);
+            }
+        }
+    }
+
+    private void emitTitle(String title) {
+        titleFound = true;
+        onTitle.accept(title);
+    }
+
+    private static String cleanTitle(String raw) {
+        return TITLE_DECORATION.matcher(raw).replaceAll("").trim();
+    }
+
+    private static String canonicalSection(String header) {
+        String upper = header.toUpperCase();
+        if (upper.startsWith("TIT")) {
+            return "TITRE";
+        }
+        if (upper.startsWith("INGR")) {
+            return "INGREDIENTS";
+        }
+        if (upper.startsWith("DESC")) {
+            return "DESCRIPTION";
+        }
+        return "INSTRUCTIONS";
+    }
+}
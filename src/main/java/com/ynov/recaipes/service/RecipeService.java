@@ -1,20 +1,27 @@
 package com.ynov.recaipes.service;
 
+import com.ynov.recaipes.dto.ParsedRecipe;
 import com.ynov.recaipes.dto.RecipeRequest;
+import com.ynov.recaipes.dto.StructuredRecipe;
 import com.ynov.recaipes.model.Recipe;
 import com.ynov.recaipes.model.PdfMetadata;
 import com.ynov.recaipes.repository.RecipeRepository;
 import com.ynov.recaipes.repository.PdfMetadataRepository;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 @Service
 @RequiredArgsConstructor
@@ -24,59 +31,289 @@ public class RecipeService {
     private final OpenAIService openAIService;
     private final PdfService pdfService;
     private final StorageService storageService;
+    private final StorageTombstoneService storageTombstoneService;
+    private final RecipeCache recipeCache;
 
-    private final Map<String, Object> userLocks = new ConcurrentHashMap<>();
+    private final Executor recipePipelineExecutor;
 
-    public Recipe generateRecipe(RecipeRequest request) {
-        Object userLock = userLocks.computeIfAbsent(request.getUserName(), k -> new Object());
+    @Value("${recipe.coalescing.window-seconds:60}")
+    private long coalescingWindowSeconds;
 
-        synchronized (userLock) {
-            try {
-                List<Recipe> recentRecipes = recipeRepository.findByCreatedByOrderByCreatedAtDesc(request.getUserName());
-
-                if (!recentRecipes.isEmpty()) {
-                    Recipe mostRecent = recentRecipes.get(0);
-                    if (ChronoUnit.SECONDS.between(mostRecent.getCreatedAt(), LocalDateTime.now()) < 60 &&
-                            mostRecent.getTitle().toLowerCase().contains(request.getDishName().toLowerCase())) {
-                        System.out.println("Reusing a recent recipe: " + mostRecent.getId());
-                        return mostRecent;
-                    }
-                }
+    private static final int MIN_INGREDIENTS_LENGTH = 15;
+    private static final int MIN_INSTRUCTIONS_LENGTH = 25;
 
-                String recipeText = openAIService.generateRecipeText(request.getDishName());
-                System.out.println("Recipe generated: \n" + recipeText);
+    private RequestCoalescer<Recipe> coalescer;
+    private final Map<String, LongAdder> stageTotals = new ConcurrentHashMap<>();
+    private final LongAdder pipelineRuns = new LongAdder();
 
-                Map<String, String> parsedRecipe = parseRecipeText(recipeText);
-
-                Recipe recipe = new Recipe();
-                recipe.setTitle(parsedRecipe.get("title"));
-                recipe.setDescription(parsedRecipe.get("description"));
-                recipe.setIngredients(parsedRecipe.get("ingredients"));
-                recipe.setInstructions(parsedRecipe.get("instructions"));
-                recipe.setCreatedBy(request.getUserName());
+    @PostConstruct
+    public void initCoalescer() {
+        this.coalescer = new RequestCoalescer<>(TimeUnit.SECONDS.toMillis(coalescingWindowSeconds));
+    }
 
-                String imageUrl = openAIService.generateRecipeImage(recipe.getTitle());
-                recipe.setImageUrl(imageUrl);
+    /**
+     * Les requêtes identiques (même utilisateur, même plat) en cours ou terminées depuis moins de
+     * {@code recipe.coalescing.window-seconds} partagent la même génération.
+     * Des plats différents d'un même utilisateur s'exécutent en parallèle.
+     */
+    public Recipe generateRecipe(RecipeRequest request) {
+        return generateRecipe(request, null);
+    }
 
-                recipe = recipeRepository.save(recipe);
+    /**
+     * Variante utilisée par les batchs : le texte de la recette a déjà été produit
+     * (complétion multi-recettes), seules les étapes image, base et PDF restent à faire.
+     * Un texte incomplet lève une exception, comme une génération classique.
+     */
+    public Recipe generateRecipe(RecipeRequest request, ParsedRecipe precomputedText) {
+        return generate(request, null, precomputedText);
+    }
 
-                PdfMetadata pdfMetadata = pdfService.generateAndSavePdf(recipe);
-                recipe.setPdfUrl(pdfMetadata.getS3Url());
+    /**
+     * Génération en streaming : les fragments et sections sont transmis au listener au fil de l'eau.
+     * Même regroupement et même cache que {@link #generateRecipe(RecipeRequest)} : une requête identique
+     * déjà en cours (ou un plat en cache) est servie sans flux de texte, seule la recette finale est renvoyée.
+     */
+    public Recipe generateRecipeStreaming(RecipeRequest request, RecipeStreamListener listener) {
+        return generate(request, listener, null);
+    }
 
-                String requestId = UUID.randomUUID().toString();
-                System.out.println("Recipe generated successfully: " + recipe.getId() + " (request ID: " + requestId + ")");
+    private Recipe generate(RecipeRequest request, RecipeStreamListener listener, ParsedRecipe precomputedText) {
+        String key = normalizeKey(request.getUserName()) + "|" + DishNameNormalizer.normalize(request.getDishName());
+        return coalescer.execute(key, () -> {
+            try {
+                Optional<Recipe> cached = recipeCache.lookup(request.getDishName())
+                        .flatMap(recipeRepository::findById);
+                if (cached.isPresent()) {
+                    System.out.println("♻️ Recette servie depuis le cache: " + cached.get().getId() + " -> " + request.getUserName());
+                    return cloneForUser(cached.get(), request.getUserName());
+                }
 
-                return recipeRepository.save(recipe);
-            } catch (IllegalStateException e) {
+                Recipe recipe = runPipeline(request, listener, precomputedText);
+                cacheIfShareable(request.getDishName(), recipe);
+                return recipe;
+            } catch (IncompleteRecipeException e) {
                 System.err.println("Recipe generation failed due to incomplete AI response: " + e.getMessage());
                 throw new RuntimeException("The AI failed to provide a complete recipe. Please try again.", e);
             }
             catch (Exception e) {
                 throw new RuntimeException("Failed to generate recipe: " + e.getMessage(), e);
             }
+        });
+    }
+
+    private static String normalizeKey(String value) {
+        return value == null ? "" : value.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Copie une recette existante (texte, image et PDF partagés) pour un autre utilisateur, sans appel OpenAI.
+     * L'image pointe vers notre stockage ({@link #cacheIfShareable}), pas vers l'URL DALL·E temporaire.
+     * La copie partage aussi {@code externalId}, {@code pdfUrl} et les fichiers de la source : supprimer l'une
+     * ou l'autre ne supprime les fichiers que s'ils ne sont plus référencés, vérification faite par
+     * {@link StorageGarbageCollector} ({@link StorageTombstoneService#isStillReferenced}) au moment de la suppression.
+     */
+    private Recipe cloneForUser(Recipe source, String userName) {
+        Recipe copy = new Recipe();
+        copy.setTitle(source.getTitle());
+        copy.setDescription(source.getDescription());
+        copy.setIngredients(source.getIngredients());
+        copy.setInstructions(source.getInstructions());
+        copy.setImageUrl(source.getImageUrl());
+        copy.setPdfUrl(source.getPdfUrl());
+        copy.setExternalBucketUrl(source.getExternalBucketUrl());
+        copy.setExternalId(source.getExternalId());
+        copy.setCategory(source.getCategory());
+        copy.setDifficulty(source.getDifficulty());
+        copy.setPreparationTime(source.getPreparationTime());
+        copy.setCreatedBy(userName);
+        copy = recipeRepository.save(copy);
+
+        PdfMetadata sourcePdf = pdfMetadataRepository.findByRecipeId(source.getId());
+        if (sourcePdf != null) {
+            PdfMetadata pdfCopy = new PdfMetadata();
+            pdfCopy.setFileName(sourcePdf.getFileName());
+            pdfCopy.setContentType(sourcePdf.getContentType());
+            pdfCopy.setFileSize(sourcePdf.getFileSize());
+            pdfCopy.setS3Url(sourcePdf.getS3Url());
+            pdfCopy.setLocalPath(sourcePdf.getLocalPath());
+            pdfCopy.setRecipe(copy);
+            pdfMetadataRepository.save(pdfCopy);
+        }
+        return copy;
+    }
+
+    /**
+     * Pipeline de génération en étapes qui se chevauchent :
+     * - l'image DALL·E démarre dès qu'un titre exploitable existe (ici le nom du plat), en parallèle du texte GPT
+     * - le téléchargement de l'image se fait pendant l'écriture en base
+     * - le PDF est rendu dès que la recette persistée et l'image sont prêtes
+     * En streaming ({@code listener} non null), l'image démarre dès que le titre est détecté dans le flux.
+     */
+    private Recipe runPipeline(RecipeRequest request, RecipeStreamListener listener, ParsedRecipe precomputedText) {
+        PipelineTimings timings = new PipelineTimings();
+        CompletableFuture<String> titleHint;
+        if (precomputedText != null && !isComplete(precomputedText)) {
+            System.err.println("⚠️ Texte pré-généré incomplet pour '" + request.getDishName() + "', nouvelle génération dédiée");
+            precomputedText = null;
+        }
+        if (precomputedText != null) {
+            // Texte déjà disponible : l'image part directement avec le vrai titre
+            titleHint = CompletableFuture.completedFuture(precomputedText.getTitle());
+        } else if (listener == null) {
+            titleHint = CompletableFuture.completedFuture(request.getDishName());
+        } else {
+            titleHint = new CompletableFuture<>();
+        }
+
+        CompletableFuture<String> imageUrlFuture = titleHint.thenApplyAsync(
+                title -> timings.time("image", () -> openAIService.generateRecipeImage(title)),
+                recipePipelineExecutor);
+        CompletableFuture<byte[]> imageBytesFuture = imageUrlFuture.thenApplyAsync(
+                url -> timings.time("imageDownload", () -> downloadImageQuietly(url)),
+                recipePipelineExecutor);
+
+        try {
+            ParsedRecipe parsedRecipe;
+            if (precomputedText != null) {
+                parsedRecipe = validateParsedRecipe(precomputedText);
+            } else if (listener == null && openAIService.isStructuredOutputEnabled()) {
+                // Mode JSON : champs typés, pas d'étape d'analyse du texte
+                StructuredRecipe structured = timings.time("text",
+                        () -> openAIService.generateStructuredRecipe(request.getDishName()));
+                parsedRecipe = structured.toParsedRecipe();
+                parsedRecipe.setTitle(RecipeTextParser.cleanTitle(parsedRecipe.getTitle()));
+                parsedRecipe = validateParsedRecipe(parsedRecipe);
+            } else {
+                String recipeText = timings.time("text", () -> listener == null
+                        ? openAIService.generateRecipeText(request.getDishName())
+                        : streamRecipeText(request.getDishName(), listener, titleHint));
+                System.out.println("Recipe generated: \n" + recipeText);
+                parsedRecipe = timings.time("parse", () -> parseRecipeText(recipeText));
+            }
+            titleHint.complete(request.getDishName());
+
+            Recipe recipe = new Recipe();
+            recipe.setTitle(parsedRecipe.getTitle());
+            recipe.setDescription(parsedRecipe.getDescription());
+            recipe.setIngredients(parsedRecipe.getIngredients());
+            recipe.setInstructions(parsedRecipe.getInstructions());
+            recipe.setCreatedBy(request.getUserName());
+            recipe.setImageUrl(imageUrlFuture.join());
+
+            // L'écriture en base se fait pendant le téléchargement de l'image
+            Recipe saved = timings.time("save", () -> recipeRepository.save(recipe));
+            byte[] imageBytes = imageBytesFuture.join();
+
+            // L'URL DALL·E expire au bout d'une heure environ : l'image est recopiée dans notre stockage
+            // pendant le rendu du PDF
+            CompletableFuture<String> storedImageFuture = CompletableFuture.supplyAsync(
+                    () -> timings.time("imageStore", () -> storeImageQuietly(saved, imageBytes)),
+                    recipePipelineExecutor);
+
+            PdfMetadata pdfMetadata = timings.time("pdf", () -> {
+                try {
+                    return pdfService.generateAndSavePdf(saved, imageBytes);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            saved.setPdfUrl(pdfMetadata.getS3Url());
+            String storedImageUrl = storedImageFuture.join();
+            if (storedImageUrl != null) {
+                saved.setImageUrl(storedImageUrl);
+            }
+
+            Recipe result = timings.time("finalSave", () -> recipeRepository.save(saved));
+
+            String requestId = UUID.randomUUID().toString();
+            System.out.println("Recipe generated successfully: " + result.getId() + " (request ID: " + requestId + ")");
+            System.out.println("⏱️ Pipeline '" + request.getDishName() + "': " + timings.summary());
+            recordTimings(timings);
+
+            return result;
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException re ? re : e;
+        } finally {
+            titleHint.cancel(false);
+            imageBytesFuture.cancel(false);
+        }
+    }
+
+    private String streamRecipeText(String dishName, RecipeStreamListener listener, CompletableFuture<String> titleHint) {
+        RecipeSectionDetector detector = new RecipeSectionDetector(listener::onSection, title -> {
+            listener.onTitle(title);
+            titleHint.complete(title);
+        });
+        String text = openAIService.streamRecipeText(dishName, token -> {
+            listener.onToken(token);
+            detector.accept(token);
+        });
+        detector.finish();
+        return text;
+    }
+
+    /**
+     * @return URL de l'image dans notre stockage, ou null (l'URL DALL·E temporaire est alors conservée)
+     */
+    private String storeImageQuietly(Recipe recipe, byte[] imageBytes) {
+        if (imageBytes == null) {
+            return null;
+        }
+        try {
+            Map<String, String> tags = Map.of("tag1", "image", "tag3", "recipe-id-" + recipe.getId());
+            String uploadResult = storageService.uploadBytes(imageBytes, "recipe_" + recipe.getId() + ".png", "image/png", tags);
+            return uploadResult.split("\\|\\|")[0];
+        } catch (RuntimeException e) {
+            System.err.println("Warning: Failed to store image: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Seules les recettes dont l'image est dans notre stockage (ou sans image) sont partagées par le cache :
+     * une URL DALL·E aurait expiré bien avant {@code recipe.cache.ttl-minutes}
+     */
+    private void cacheIfShareable(String dishName, Recipe recipe) {
+        if (recipe.getImageUrl() == null || storageService.isManagedUrl(recipe.getImageUrl())) {
+            recipeCache.put(dishName, recipe.getId());
+        } else {
+            System.out.println("⚠️ Image non recopiée, recette non mise en cache: " + recipe.getId());
         }
     }
 
+    private byte[] downloadImageQuietly(String imageUrl) {
+        if (imageUrl == null || imageUrl.isEmpty()) {
+            return null;
+        }
+        try {
+            return storageService.downloadImageBytes(imageUrl);
+        } catch (IOException e) {
+            System.err.println("Warning: Failed to download image: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void recordTimings(PipelineTimings timings) {
+        pipelineRuns.increment();
+        timings.getStageMillis().forEach((stage, millis) ->
+                stageTotals.computeIfAbsent(stage, k -> new LongAdder()).add(millis));
+        stageTotals.computeIfAbsent("sumOfStages", k -> new LongAdder()).add(timings.getSumOfStagesMillis());
+        stageTotals.computeIfAbsent("endToEnd", k -> new LongAdder()).add(timings.getTotalMillis());
+    }
+
+    /**
+     * Durées moyennes (ms) de chaque étape depuis le démarrage
+     */
+    public Map<String, Long> getPipelineAverages() {
+        long runs = pipelineRuns.sum();
+        Map<String, Long> averages = new TreeMap<>();
+        if (runs > 0) {
+            stageTotals.forEach((stage, total) -> averages.put(stage, total.sum() / runs));
+        }
+        return averages;
+    }
+
     public List<Recipe> getAllRecipes() {
         return recipeRepository.findAll();
     }
@@ -110,9 +347,13 @@ public class RecipeService {
             }
 
             recipeRepository.delete(recipe);
+            coalescer.evictIf(r -> id.equals(r.getId()));
+            recipeCache.invalidateRecipe(id);
 
+            // Suppression du stockage en tâche de fond (StorageGarbageCollector) : les fichiers partagés
+            // avec des copies issues du cache sont conservés, la vérification a lieu au moment de la suppression
             if (!filesToDelete.isEmpty()) {
-                storageService.deleteFiles(new ArrayList<>(filesToDelete));
+                storageTombstoneService.enqueue(filesToDelete);
             }
 
             System.out.println("✅ Recipe deleted successfully: " + id);
@@ -132,7 +373,10 @@ public class RecipeService {
                 "total", allRecipes.size(),
                 "today", allRecipes.stream()
                         .filter(r -> r.getCreatedAt().toLocalDate().equals(LocalDate.now()))
-                        .count()
+                        .count(),
+                "pipelineAverageMs", getPipelineAverages(),
+                "coalescing", coalescer.getStats(),
+                "cache", recipeCache.getStats()
         );
     }
 
@@ -147,81 +391,29 @@ public class RecipeService {
         return recipeRepository.save(existingRecipe);
     }
 
-    private Map<String, String> parseRecipeText(String recipeText) {
-        if (recipeText != null && !recipeText.isEmpty() && recipeText.startsWith("\uFEFF")) {
-            recipeText = recipeText.substring(1);
-            System.out.println("✅ BOM character removed from the beginning of the text.");
-        }
+    private ParsedRecipe parseRecipeText(String recipeText) {
+        return validateParsedRecipe(RecipeTextParser.parse(recipeText));
+    }
 
-        String title = extractTitle(recipeText);
-        String description = extractSection(recipeText, "DESCRIPTION", "INGREDIENTS");
-        String ingredients = extractSection(recipeText, "INGR[EÉ]DIENTS?", "INSTRUCTIONS|PREPARATION|ÉTAPES");
-        String instructions = extractSection(recipeText, "INSTRUCTIONS?|PREPARATION|ÉTAPES", null);
+    private static boolean isComplete(ParsedRecipe parsed) {
+        return parsed.getIngredients() != null && parsed.getIngredients().length() >= MIN_INGREDIENTS_LENGTH
+                && parsed.getInstructions() != null && parsed.getInstructions().length() >= MIN_INSTRUCTIONS_LENGTH;
+    }
 
-        final int MIN_INGREDIENTS_LENGTH = 15;
-        final int MIN_INSTRUCTIONS_LENGTH = 25;
+    private ParsedRecipe validateParsedRecipe(ParsedRecipe parsed) {
+        System.out.println("🎯 Title extracted: " + parsed.getTitle());
 
-        if (ingredients.trim().length() < MIN_INGREDIENTS_LENGTH) {
-            System.err.println("Validation failed: Ingredients section is too short. Content: " + ingredients);
-            throw new IllegalStateException("Failed to generate complete ingredients from AI.");
+        if (parsed.getIngredients().length() < MIN_INGREDIENTS_LENGTH) {
+            System.err.println("Validation failed: Ingredients section is too short. Content: " + parsed.getIngredients());
+            throw new IncompleteRecipeException("Failed to generate complete ingredients from AI.");
         }
-        if (instructions.trim().length() < MIN_INSTRUCTIONS_LENGTH) {
-            System.err.println("Validation failed: Instructions section is too short. Content: " + instructions);
-            throw new IllegalStateException("Failed to generate complete instructions from AI.");
+        if (parsed.getInstructions().length() < MIN_INSTRUCTIONS_LENGTH) {
+            System.err.println("Validation failed: Instructions section is too short. Content: " + parsed.getInstructions());
+            throw new IncompleteRecipeException("Failed to generate complete instructions from AI.");
         }
 
         System.out.println("✅ Validation Passed: All sections have sufficient content.");
-
-        return Map.of(
-                "title", cleanTitle(title),
-                "ingredients", ingredients.trim(),
-                "instructions", instructions.trim(),
-                "description", description.trim()
-        );
-    }
-
-    private String extractTitle(String recipeText) {
-        if (recipeText == null || recipeText.trim().isEmpty()) {
-            return "Recipe Without Name";
-        }
-        String[] titlePatterns = {
-                "(?i)^\\s*TITRE\\s*:?\\s*(.+?)$",
-                "(?i)^\\s*RECIPE\\s*:?\\s*(.+?)$",
-                "(?i)^\\s*NOM\\s*:?\\s*(.+?)$",
-                "(?i)^\\s*#\\s*(.+?)$",
-                "(?i)^\\s*\\*\\*(.+?)\\*\\*",
-                "(?i)^\\s*(.+?)(?=\\n|DESCRIPTION|INGR)"
-        };
-        for (String patternStr : titlePatterns) {
-            Pattern pattern = Pattern.compile(patternStr, Pattern.MULTILINE);
-            Matcher matcher = pattern.matcher(recipeText);
-            if (matcher.find()) {
-                String candidateTitle = matcher.group(1).trim();
-                if (!candidateTitle.isEmpty() && candidateTitle.length() <= 200 &&
-                        !candidateTitle.toLowerCase().contains("ingredient") &&
-                        !candidateTitle.toLowerCase().contains("instruction") &&
-                        !candidateTitle.toLowerCase().contains("description")) {
-                    System.out.println("🎯 Title extracted with pattern '" + patternStr + "': " + candidateTitle);
-                    return cleanTitle(candidateTitle);
-                }
-            }
-        }
-        return "Delicious Recipe";
-    }
-
-    private String cleanTitle(String title) {
-        if (title == null) {
-            return "Recipe Without Name";
-        }
-        title = title.trim()
-                .replaceAll("(?i)^(TITLE|TITRE|RECIPE|RECETTE|NOM)\\s*:?\\s*", "")
-                .replaceAll("^[\\*#\\-\\s]+", "")
-                .replaceAll("[\\*#\\-\\s]+$", "")
-                .replaceAll("\\s+", " ");
-        if (!title.isEmpty()) {
-            title = title.substring(0, 1).toUpperCase() + (title.length() > 1 ? title.substring(1) : "");
-        }
-        return title.isEmpty() ? "Recipe Without Name" : title;
+        return parsed;
     }
 
     private String cleanDescription(String description) {
@@ -235,42 +427,4 @@ public class RecipeService {
         }
         return description.isEmpty() ? "No description available." : description;
     }
-
-    /**
-     * Extracts the content between a start pattern and an end pattern (or end of text).
-     * This version is corrected to handle regex groups properly and avoid NullPointerException.
-     * @param text The full text to search in.
-     * @param startPattern The keyword that marks the beginning of the section (e.g., "INGREDIENTS").
-     * @param endPattern The keyword that marks the beginning of the *next* section. If null, extracts to the end.
-     * @return The trimmed content of the section.
-     */
-    private String extractSection(String text, String startPattern, String endPattern) {
-        if (text == null || text.isEmpty()) {
-            return "";
-        }
-        try {
-            String regex;
-            // The startPattern must be grouped to handle the '|' OR operator correctly.
-            // The content is now in the second capturing group.
-            if (endPattern != null) {
-                regex = "(?i)(" + startPattern + ")\\s*:?\\s*\\n?(.*?)(?=" + endPattern + "|$)";
-            } else {
-                regex = "(?i)(" + startPattern + ")\\s*:?\\s*\\n?(.*)";
-            }
-
-            Pattern pattern = Pattern.compile(regex, Pattern.DOTALL);
-            Matcher matcher = pattern.matcher(text);
-
-            if (matcher.find()) {
-                // The content is in group 2. Group 1 is the matched startPattern keyword (e.g., "INGREDIENTS").
-                String content = matcher.group(2);
-                if (content != null) {
-                    return content.trim();
-                }
-            }
-        } catch (Exception e) {
-            System.err.println("Error extracting section with startPattern '" + startPattern + "': " + e.getMessage());
-        }
-        return ""; // Return empty string if not found or if content is null
-    }
 }
\ No newline at end of file
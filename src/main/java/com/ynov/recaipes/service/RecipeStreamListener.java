@@ -0,0 +1,22 @@
+package com.ynov.recaipes.service;
+
+/**
+ * Reçoit la progression d'une génération de recette en streaming
+ */
+public interface RecipeStreamListener {
+
+    /**
+     * Fragment de texte reçu d'OpenAI
+     */
+    void onToken(String token);
+
+    /**
+     * Nouvelle section détectée : TITRE, INGREDIENTS, INSTRUCTIONS ou DESCRIPTION
+     */
+    void onSection(String section);
+
+    /**
+     * Titre détecté dans le texte en cours de génération
+     */
+    void onTitle(String title);
+}
@@ -0,0 +1,428 @@
+package com.ynov.recaipes.service;
+
+import com.ynov.recaipes.dto.ParsedRecipe;
+
+/**
+ * Découpage en une seule passe du texte renvoyé par GPT en titre / description / ingrédients / instructions.
+ *
+ * Reproduit les règles des anciennes expressions régulières (titre : TITRE, RECIPE, NOM, "#", "**...**"
+ * puis première ligne ; sections : première occurrence du mot-clé, insensible à la casse ASCII)
+ * sans compiler de Pattern ni revenir en arrière sur le texte.
+ */
+public final class RecipeTextParser {
+
+    private static final String NO_NAME = "Recipe Without Name";
+    private static final String DEFAULT_TITLE = "Delicious Recipe";
+    private static final int MAX_TITLE_LENGTH = 200;
+
+    private static final String[] TITLE_PREFIXES = {"TITLE", "TITRE", "RECIPE", "RECETTE", "NOM"};
+
+    private RecipeTextParser() {
+    }
+
+    public static ParsedRecipe parse(String text) {
+        if (text != null && !text.isEmpty() && text.charAt(0) == '\uFEFF') {
+            text = text.substring(1);
+        }
+        if (text == null || text.isEmpty()) {
+            return new ParsedRecipe(cleanTitle(NO_NAME), "", "", "");
+        }
+
+        Scan scan = new Scan(text);
+        scan.run();
+
+        String title = cleanTitle(scan.title());
+        String description = section(text, scan.descriptionContent, scan.descriptionEnd);
+        String ingredients = section(text, scan.ingredientsContent, scan.ingredientsEnd);
+        String instructions = section(text, scan.instructionsContent, -1);
+        return new ParsedRecipe(title, description, ingredients, instructions);
+    }
+
+    /**
+     * Nettoyage du titre : préfixe "TITRE :", décorations markdown, espaces multiples, majuscule initiale
+     */
+    public static String cleanTitle(String title) {
+        if (title == null) {
+            return NO_NAME;
+        }
+        String t = title.trim();
+
+        for (String prefix : TITLE_PREFIXES) {
+            if (matchesIgnoreCase(t, 0, prefix)) {
+                int i = skipWhitespace(t, prefix.length());
+                if (i < t.length() && t.charAt(i) == ':') {
+                    i = skipWhitespace(t, i + 1);
+                }
+                t = t.substring(i);
+                break;
+            }
+        }
+
+        int start = 0;
+        int end = t.length();
+        while (start < end && isDecoration(t.charAt(start))) {
+            start++;
+        }
+        while (end > start && isDecoration(t.charAt(end - 1))) {
+            end--;
+        }
+
+        StringBuilder collapsed = new StringBuilder(end - start);
+        boolean inWhitespace = false;
+        for (int i = start; i < end; i++) {
+            char c = t.charAt(i);
+            if (isWhitespace(c)) {
+                if (!inWhitespace) {
+                    collapsed.append(' ');
+                    inWhitespace = true;
+                }
+            } else {
+                collapsed.append(c);
+                inWhitespace = false;
+            }
+        }
+
+        if (collapsed.length() == 0) {
+            return NO_NAME;
+        }
+        String result = collapsed.toString();
+        return result.substring(0, 1).toUpperCase() + result.substring(1);
+    }
+
+    private static String section(String text, int contentStart, int end) {
+        if (contentStart < 0) {
+            return "";
+        }
+        return text.substring(contentStart, end < 0 ? text.length() : end).trim();
+    }
+
+    /**
+     * État du parcours unique du texte
+     */
+    private static final class Scan {
+        private final String text;
+        private final int length;
+
+        int descriptionKeyword = -1;
+        int descriptionContent = -1;
+        int descriptionEnd = -1;
+        int ingredientsKeywordEnd = -1;
+        int ingredientsContent = -1;
+        int ingredientsEnd = -1;
+        int instructionsContent = -1;
+
+        // Premières occurrences en début de ligne des marqueurs de titre
+        int titreAt = -1;
+        int recipeAt = -1;
+        int nomAt = -1;
+        int hashAt = -1;
+        String boldTitle;
+
+        Scan(String text) {
+            this.text = text;
+            this.length = text.length();
+        }
+
+        void run() {
+            boolean lineHead = true;
+            for (int i = 0; i < length; i++) {
+                char c = text.charAt(i);
+
+                if (isLineTerminator(c)) {
+                    lineHead = true;
+                    continue;
+                }
+                if (isWhitespace(c)) {
+                    continue;
+                }
+
+                if (lineHead) {
+                    checkTitleMarkers(c, i);
+                    lineHead = false;
+                }
+
+                switch (c) {
+                    case 'D', 'd' -> {
+                        if (descriptionKeyword < 0 && matchesIgnoreCase(text, i, "DESCRIPTION")) {
+                            descriptionKeyword = i;
+                            descriptionContent = contentStart(i + 11);
+                        }
+                    }
+                    case 'I', 'i' -> checkIKeywords(i);
+                    case 'P', 'p' -> {
+                        if (matchesIgnoreCase(text, i, "PREPARATION")) {
+                            instructionsKeyword(i, i + 11);
+                        }
+                    }
+                    case 'É' -> {
+                        if (matchesIgnoreCase(text, i, "ÉTAPES")) {
+                            instructionsKeyword(i, i + 6);
+                        }
+                    }
+                    default -> {
+                    }
+                }
+            }
+        }
+
+        private void checkIKeywords(int i) {
+            if (matchesIngredient(i)) {
+                int keywordEnd = i + 10;
+                if (keywordEnd < length && (text.charAt(keywordEnd) | 0x20) == 's') {
+                    keywordEnd++;
+                }
+                if (ingredientsContent < 0) {
+                    ingredientsKeywordEnd = keywordEnd;
+                    ingredientsContent = contentStart(keywordEnd);
+                }
+                if (descriptionKeyword >= 0 && descriptionEnd < 0 && i >= descriptionKeyword + 11
+                        && matchesIgnoreCase(text, i, "INGREDIENTS")) {
+                    descriptionEnd = i;
+                }
+            } else if (matchesIgnoreCase(text, i, "INSTRUCTION")) {
+                int keywordEnd = i + 11;
+                boolean plural = keywordEnd < length && (text.charAt(keywordEnd) | 0x20) == 's';
+                if (instructionsContent < 0) {
+                    instructionsContent = contentStart(plural ? keywordEnd + 1 : keywordEnd);
+                }
+                // Fin des ingrédients : uniquement la forme plurielle
+                if (plural) {
+                    ingredientsEnd(i);
+                }
+            }
+        }
+
+        private void instructionsKeyword(int i, int keywordEnd) {
+            if (instructionsContent < 0) {
+                instructionsContent = contentStart(keywordEnd);
+            }
+            ingredientsEnd(i);
+        }
+
+        private void ingredientsEnd(int i) {
+            if (ingredientsContent >= 0 && ingredientsEnd < 0 && i >= ingredientsKeywordEnd) {
+                ingredientsEnd = i;
+            }
+        }
+
+        private boolean matchesIngredient(int i) {
+            if (i + 10 > length || !matchesIgnoreCase(text, i, "INGR")) {
+                return false;
+            }
+            char e = text.charAt(i + 4);
+            return (e == 'E' || e == 'e' || e == 'É') && matchesIgnoreCase(text, i + 5, "DIENT");
+        }
+
+        /**
+         * Après le mot-clé : espaces, ":" optionnel, espaces
+         */
+        private int contentStart(int afterKeyword) {
+            int i = skipWhitespace(text, afterKeyword);
+            if (i < length && text.charAt(i) == ':') {
+                i = skipWhitespace(text, i + 1);
+            }
+            return i;
+        }
+
+        private void checkTitleMarkers(char c, int i) {
+            switch (c) {
+                case 'T', 't' -> {
+                    if (titreAt < 0 && matchesIgnoreCase(text, i, "TITRE")) {
+                        titreAt = i + 5;
+                    }
+                }
+                case 'R', 'r' -> {
+                    if (recipeAt < 0 && matchesIgnoreCase(text, i, "RECIPE")) {
+                        recipeAt = i + 6;
+                    }
+                }
+                case 'N', 'n' -> {
+                    if (nomAt < 0 && matchesIgnoreCase(text, i, "NOM")) {
+                        nomAt = i + 3;
+                    }
+                }
+                case '#' -> {
+                    if (hashAt < 0) {
+                        hashAt = i + 1;
+                    }
+                }
+                case '*' -> {
+                    if (boldTitle == null && i + 1 < length && text.charAt(i + 1) == '*') {
+                        boldTitle = boldContent(i + 2);
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+
+        /**
+         * "**...**" sur une même ligne, contenu d'au moins un caractère
+         */
+        private String boldContent(int start) {
+            for (int j = start + 1; j + 1 < length; j++) {
+                char c = text.charAt(j - 1);
+                if (isLineTerminator(c)) {
+                    return null;
+                }
+                if (text.charAt(j) == '*' && text.charAt(j + 1) == '*') {
+                    return text.substring(start, j);
+                }
+            }
+            return null;
+        }
+
+        String title() {
+            if (text.trim().isEmpty()) {
+                return NO_NAME;
+            }
+            String[] candidates = {
+                    keywordTitle(titreAt, true),
+                    keywordTitle(recipeAt, true),
+                    keywordTitle(nomAt, true),
+                    keywordTitle(hashAt, false),
+                    boldTitle,
+                    firstLineTitle()
+            };
+            for (String candidate : candidates) {
+                if (candidate == null) {
+                    continue;
+                }
+                String trimmed = candidate.trim();
+                String lower = trimmed.toLowerCase();
+                if (!trimmed.isEmpty() && trimmed.length() <= MAX_TITLE_LENGTH &&
+                        !lower.contains("ingredient") &&
+                        !lower.contains("instruction") &&
+                        !lower.contains("description")) {
+                    return cleanTitle(trimmed);
+                }
+            }
+            return DEFAULT_TITLE;
+        }
+
+        /**
+         * Reste de la ligne après le marqueur (les espaces et sauts de ligne suivants sont ignorés)
+         */
+        private String keywordTitle(int afterKeyword, boolean allowColon) {
+            if (afterKeyword < 0) {
+                return null;
+            }
+            int i = skipWhitespace(text, afterKeyword);
+            boolean colon = false;
+            if (allowColon && i < length && text.charAt(i) == ':') {
+                colon = true;
+                i = skipWhitespace(text, i + 1);
+            }
+            if (i < length) {
+                int end = i;
+                while (end < length && !isLineTerminator(text.charAt(end))) {
+                    end++;
+                }
+                return text.substring(i, end);
+            }
+            // Rien après le marqueur : seul un ":" isolé reste exploitable
+            return colon && !hasInlineWhitespaceAfterColon(afterKeyword) ? ":" : null;
+        }
+
+        private boolean hasInlineWhitespaceAfterColon(int afterKeyword) {
+            int colonAt = text.indexOf(':', afterKeyword);
+            for (int i = colonAt + 1; i < length; i++) {
+                if (!isLineTerminator(text.charAt(i))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Première ligne, coupée avant DESCRIPTION / INGR ou au premier saut de ligne
+         */
+        private String firstLineTitle() {
+            int lineStart = 0;
+            while (lineStart < length) {
+                int a = skipWhitespace(text, lineStart);
+                String candidate = firstLineFrom(a);
+                if (candidate != null) {
+                    return candidate;
+                }
+                for (int q = a - 1; q >= lineStart; q--) {
+                    candidate = firstLineFrom(q);
+                    if (candidate != null) {
+                        return candidate;
+                    }
+                }
+                lineStart = nextLineStart(a);
+            }
+            return null;
+        }
+
+        private String firstLineFrom(int start) {
+            if (start >= length || isLineTerminator(text.charAt(start))) {
+                return null;
+            }
+            for (int j = start + 1; j < length; j++) {
+                char c = text.charAt(j);
+                if (c == '\n' || matchesIgnoreCase(text, j, "DESCRIPTION") || matchesIgnoreCase(text, j, "INGR")) {
+                    return text.substring(start, j);
+                }
+                if (isLineTerminator(c)) {
+                    return null;
+                }
+            }
+            return null;
+        }
+
+        private int nextLineStart(int from) {
+            for (int i = from; i < length; i++) {
+                char c = text.charAt(i);
+                if (isLineTerminator(c)) {
+                    if (c == '\r' && i + 1 < length && text.charAt(i + 1) == '\n') {
+                        i++;
+                    }
+                    return i + 1;
+                }
+            }
+            return length;
+        }
+    }
+
+    private static int skipWhitespace(String text, int from) {
+        int i = from;
+        while (i < text.length() && isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Équivalent de \s (sans UNICODE_CHARACTER_CLASS)
+     */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    private static boolean isDecoration(char c) {
+        return c == '*' || c == '#' || c == '-' || isWhitespace(c);
+    }
+
+    /**
+     * Comparaison insensible à la casse ASCII uniquement (comme (?i) sans UNICODE_CASE)
+     */
+    private static boolean matchesIgnoreCase(String text, int offset, String upperKeyword) {
+        if (offset + upperKeyword.length() > text.length()) {
+            return false;
+        }
+        for (int k = 0; k < upperKeyword.length(); k++) {
+            char c = text.charAt(offset + k);
+            char u = upperKeyword.charAt(k);
+            if (c != u && !(u >= 'A' && u <= 'Z' && c == u + 32)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,114 @@
+package com.ynov.recaipes.service;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Regroupement "single-flight" des requêtes identiques.
+ * Le premier appelant d'une clé exécute le travail, les appels concurrents (ou arrivant
+ * dans la fenêtre de réutilisation après un succès) récupèrent le même résultat.
+ * Les clés terminées sont évincées à l'expiration de la fenêtre, ou immédiatement en cas d'échec.
+ */
+public class RequestCoalescer<V> {
+
+    private final Map<String, Flight<V>> flights = new ConcurrentHashMap<>();
+    private final long reuseWindowMillis;
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    public RequestCoalescer(long reuseWindowMillis) {
+        this.reuseWindowMillis = reuseWindowMillis;
+    }
+
+    public V execute(String key, Supplier<V> action) {
+        evictExpired();
+
+        Flight<V> created = new Flight<>();
+        Flight<V> flight = flights.compute(key, (k, existing) ->
+                existing != null && existing.isReusable(reuseWindowMillis) ? existing : created);
+
+        if (flight != created) {
+            coalesced.increment();
+            return flight.join();
+        }
+
+        executions.increment();
+        boolean succeeded = false;
+        try {
+            V value = action.get();
+            flight.complete(value);
+            succeeded = true;
+            return value;
+        } catch (Throwable e) {
+            // y compris les Error (OOM, StackOverflowError...) : les appelants en attente ne doivent pas bloquer
+            flight.fail(e);
+            throw e;
+        } finally {
+            if (!succeeded) {
+                flights.remove(key, flight);
+            }
+        }
+    }
+
+    /**
+     * Évince les résultats terminés qui ne doivent plus être réutilisés (ex: recette supprimée)
+     */
+    public void evictIf(Predicate<V> predicate) {
+        flights.values().removeIf(f -> f.isDone() && predicate.test(f.future.getNow(null)));
+    }
+
+    public Map<String, Object> getStats() {
+        return Map.of(
+                "keys", flights.size(),
+                "executions", executions.sum(),
+                "coalesced", coalesced.sum()
+        );
+    }
+
+    private void evictExpired() {
+        flights.values().removeIf(f -> f.isExpired(reuseWindowMillis));
+    }
+
+    private static class Flight<V> {
+        final CompletableFuture<V> future = new CompletableFuture<>();
+        volatile long completedAt;
+
+        void complete(V value) {
+            completedAt = System.currentTimeMillis();
+            future.complete(value);
+        }
+
+        void fail(Throwable error) {
+            completedAt = System.currentTimeMillis();
+            future.completeExceptionally(error);
+        }
+
+        boolean isDone() {
+            return future.isDone() && !future.isCompletedExceptionally();
+        }
+
+        boolean isReusable(long windowMillis) {
+            return !future.isDone() || (isDone() && !isExpired(windowMillis));
+        }
+
+        boolean isExpired(long windowMillis) {
+            return future.isDone() && System.currentTimeMillis() - completedAt >= windowMillis;
+        }
+
+        V join() {
+            try {
+                return future.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof Error error) {
+                    throw error;
+                }
+                throw e.getCause() instanceof RuntimeException re ? re : e;
+            }
+        }
+    }
+}
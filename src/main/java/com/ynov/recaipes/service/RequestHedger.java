@@ -0,0 +1,159 @@
+package com.ynov.recaipes.service;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Requêtes doublées ("hedging") : si la première requête n'a pas répondu après le p95 des latences récentes,
+ * une seconde identique est lancée et la première réponse réussie l'emporte.
+ * Chaque doublon consomme un jeton du {@link RetryBudget} partagé, pour borner le surcoût en quota.
+ */
+public class RequestHedger {
+
+    private static final int WINDOW = 200;
+    private static final int MIN_SAMPLES = 20;
+
+    private final boolean enabled;
+    private final long minDelayMs;
+    private final Executor executor;
+    private final RetryBudget budget;
+
+    private final long[] latencies = new long[WINDOW];
+    private int latencyCount;
+    private int latencyIndex;
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder hedged = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+
+    public RequestHedger(boolean enabled, long minDelayMs, Executor executor, RetryBudget budget) {
+        this.enabled = enabled;
+        this.minDelayMs = minDelayMs;
+        this.executor = executor;
+        this.budget = budget;
+    }
+
+    public <T> T call(Supplier<T> request) {
+        if (!enabled) {
+            return timed(request).get();
+        }
+        calls.increment();
+
+        CompletableFuture<T> primary;
+        try {
+            primary = CompletableFuture.supplyAsync(timed(request), executor);
+        } catch (RejectedExecutionException e) {
+            skipped.increment();
+            return timed(request).get();
+        }
+
+        try {
+            return primary.get(hedgeDelayMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // la première requête est plus lente que d'habitude : on tente un doublon
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for OpenAI", e);
+        }
+
+        if (!budget.tryWithdraw()) {
+            skipped.increment();
+            return join(primary);
+        }
+        CompletableFuture<T> hedge;
+        try {
+            hedge = CompletableFuture.supplyAsync(timed(request), executor);
+        } catch (RejectedExecutionException e) {
+            skipped.increment();
+            return join(primary);
+        }
+        hedged.increment();
+
+        CompletableFuture<T> winner = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        primary.whenComplete((result, error) -> complete(winner, result, error, failures));
+        hedge.whenComplete((result, error) -> {
+            if (error == null && !winner.isDone()) {
+                hedgeWins.increment();
+            }
+            complete(winner, result, error, failures);
+        });
+        return join(winner);
+    }
+
+    private static <T> void complete(CompletableFuture<T> winner, T result, Throwable error, AtomicInteger failures) {
+        if (error == null) {
+            winner.complete(result);
+        } else if (failures.incrementAndGet() == 2) {
+            winner.completeExceptionally(error);
+        }
+    }
+
+    /**
+     * p95 des dernières latences réussies, au moins {@code minDelayMs} (valeur utilisée tant que l'historique est trop court)
+     */
+    synchronized long hedgeDelayMillis() {
+        if (latencyCount < MIN_SAMPLES) {
+            return minDelayMs;
+        }
+        long[] sorted = Arrays.copyOf(latencies, latencyCount);
+        Arrays.sort(sorted);
+        long p95 = sorted[(int) Math.ceil(latencyCount * 0.95) - 1];
+        return Math.max(minDelayMs, p95);
+    }
+
+    private synchronized void recordLatency(long millis) {
+        latencies[latencyIndex] = millis;
+        latencyIndex = (latencyIndex + 1) % WINDOW;
+        latencyCount = Math.min(latencyCount + 1, WINDOW);
+    }
+
+    private <T> Supplier<T> timed(Supplier<T> request) {
+        return () -> {
+            long start = System.nanoTime();
+            T result = request.get();
+            recordLatency(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return result;
+        };
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    private static RuntimeException unwrap(Throwable cause) {
+        if (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause instanceof RuntimeException re ? re : new IllegalStateException(cause);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("calls", calls.sum());
+        stats.put("hedged", hedged.sum());
+        stats.put("hedgeWins", hedgeWins.sum());
+        stats.put("skipped", skipped.sum());
+        stats.put("hedgeDelayMs", hedgeDelayMillis());
+        return stats;
+    }
+}
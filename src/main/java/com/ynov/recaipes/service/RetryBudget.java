@@ -0,0 +1,37 @@
+package com.ynov.recaipes.service;
+
+/**
+ * Budget de tentatives supplémentaires (relances, requêtes doublées) partagé par les appels OpenAI.
+ * Chaque appel initial crédite {@code ratio} jeton, chaque tentative supplémentaire en consomme un :
+ * en régime établi, au plus {@code ratio} × le trafic nominal est rejoué. {@code minReserve} jetons restent
+ * disponibles à faible trafic. Quand le service distant est en panne, le budget s'épuise et on arrête
+ * d'amplifier la charge.
+ */
+public class RetryBudget {
+
+    private final double ratio;
+    private final double capacity;
+    private double balance;
+
+    public RetryBudget(double ratio, int minReserve) {
+        this.ratio = ratio;
+        this.capacity = Math.max(1, minReserve);
+        this.balance = capacity;
+    }
+
+    public synchronized void onRequest() {
+        balance = Math.min(capacity, balance + ratio);
+    }
+
+    public synchronized boolean tryWithdraw() {
+        if (balance >= 1) {
+            balance -= 1;
+            return true;
+        }
+        return false;
+    }
+
+    public synchronized double getBalance() {
+        return balance;
+    }
+}
@@ -0,0 +1,105 @@
+package com.ynov.recaipes.service;
+
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Relance des erreurs transitoires (429, 5xx, délais et erreurs réseau) avec un backoff exponentiel
+ * à "full jitter" : l'attente avant la tentative n est tirée uniformément dans [0, min(max, base × 2^n)].
+ * Chaque relance consomme un jeton du {@link RetryBudget} partagé.
+ */
+public class RetryPolicy {
+
+    private final int maxAttempts;
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+    private final RetryBudget budget;
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder recovered = new LongAdder();
+    private final LongAdder budgetExhausted = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    public RetryPolicy(int maxAttempts, long baseDelayMs, long maxDelayMs, RetryBudget budget) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelayMs = baseDelayMs;
+        this.maxDelayMs = maxDelayMs;
+        this.budget = budget;
+    }
+
+    public <T> T execute(Supplier<T> call) {
+        return execute(call, () -> true);
+    }
+
+    /**
+     * @param canRetry vérifié avant chaque relance (ex. : rien n'a encore été transmis au client en streaming)
+     */
+    public <T> T execute(Supplier<T> call, BooleanSupplier canRetry) {
+        calls.increment();
+        budget.onRequest();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                T result = call.get();
+                if (attempt > 1) {
+                    recovered.increment();
+                }
+                return result;
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts || !isRetryable(e) || !canRetry.getAsBoolean()) {
+                    failures.increment();
+                    throw e;
+                }
+                if (!budget.tryWithdraw()) {
+                    budgetExhausted.increment();
+                    failures.increment();
+                    throw e;
+                }
+                retries.increment();
+                long delay = backoffMillis(attempt);
+                System.err.println("🔁 Erreur transitoire (" + e.getMessage() + "), tentative " + (attempt + 1) +
+                        "/" + maxAttempts + " dans " + delay + " ms");
+                sleep(delay, e);
+            }
+        }
+    }
+
+    long backoffMillis(int attempt) {
+        long ceiling = Math.min(maxDelayMs, baseDelayMs << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    static boolean isRetryable(Throwable e) {
+        if (e instanceof HttpStatusCodeException statusException) {
+            int status = statusException.getStatusCode().value();
+            return status == 408 || status == 429 || status >= 500;
+        }
+        return e instanceof ResourceAccessException;
+    }
+
+    private static void sleep(long delayMs, RuntimeException cause) {
+        try {
+            Thread.sleep(delayMs);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw cause;
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("calls", calls.sum());
+        stats.put("retries", retries.sum());
+        stats.put("recovered", recovered.sum());
+        stats.put("budgetExhausted", budgetExhausted.sum());
+        stats.put("failures", failures.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,264 @@
+package com.ynov.recaipes.service;
+
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.HttpMethod;
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.client.builder.AwsClientBuilder;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.amazonaws.services.s3.model.CannedAccessControlList;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.transfer.TransferManager;
+import com.amazonaws.services.s3.transfer.TransferManagerBuilder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stockage S3 (priorité 1), actif uniquement si {@code aws.enabled} et des identifiants sont configurés.
+ * Les gros objets sont envoyés en multipart, parties en parallèle (TransferManager) ; les connexions HTTP
+ * du client sont réutilisées. {@code aws.s3.endpoint} permet de viser un service compatible S3 (MinIO, LocalStack...).
+ * Les objets restent privés (Block Public Access) : l'URL enregistrée sert à la suppression, les clients reçoivent
+ * une URL signée ({@code aws.s3.url-mode=presigned}), une URL de CDN ({@code cdn}, {@code aws.s3.public-url-prefix})
+ * ou, si le bucket l'autorise, l'URL directe d'un objet en lecture publique ({@code public-read}).
+ */
+@Component
+public class S3StorageProvider implements StorageProvider {
+
+    private static final String KEY_PREFIX = "recipes/";
+
+    @Value("${aws.enabled:false}")
+    private boolean enabled;
+
+    @Value("${aws.s3.bucket.name:recaipes-bucket}")
+    private String bucketName;
+
+    @Value("${aws.s3.region:us-east-1}")
+    private String region;
+
+    @Value("${aws.access.key.id:}")
+    private String accessKeyId;
+
+    @Value("${aws.secret.access.key:}")
+    private String secretAccessKey;
+
+    @Value("${aws.s3.endpoint:}")
+    private String endpoint;
+
+    @Value("${aws.s3.path-style-access:false}")
+    private boolean pathStyleAccess;
+
+    @Value("${aws.s3.max-connections:50}")
+    private int maxConnections;
+
+    @Value("${aws.s3.multipart.threshold-mb:16}")
+    private long multipartThresholdMb;
+
+    @Value("${aws.s3.multipart.part-size-mb:8}")
+    private long partSizeMb;
+
+    @Value("${aws.s3.multipart.threads:8}")
+    private int uploadThreads;
+
+    @Value("${aws.s3.url-mode:presigned}")
+    private String urlMode;
+
+    @Value("${aws.s3.presign-minutes:60}")
+    private long presignMinutes;
+
+    @Value("${aws.s3.public-url-prefix:}")
+    private String publicUrlPrefix;
+
+    private AmazonS3 s3Client;
+    private TransferManager transferManager;
+    private String urlPrefix;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        if (accessKeyId == null || accessKeyId.isEmpty() || secretAccessKey == null || secretAccessKey.isEmpty()) {
+            System.out.println("S3 Storage Provider non disponible - identifiants AWS manquants");
+            return;
+        }
+
+        ClientConfiguration clientConfiguration = new ClientConfiguration()
+                .withMaxConnections(maxConnections)
+                .withTcpKeepAlive(true);
+        AmazonS3ClientBuilder builder = AmazonS3ClientBuilder.standard()
+                .withCredentials(new AWSStaticCredentialsProvider(new BasicAWSCredentials(accessKeyId, secretAccessKey)))
+                .withClientConfiguration(clientConfiguration)
+                .withPathStyleAccessEnabled(pathStyleAccess);
+        if (endpoint != null && !endpoint.isEmpty()) {
+            builder.withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration(endpoint, region));
+        } else {
+            builder.withRegion(region);
+        }
+        s3Client = builder.build();
+
+        transferManager = TransferManagerBuilder.standard()
+                .withS3Client(s3Client)
+                .withMultipartUploadThreshold(multipartThresholdMb * 1024 * 1024)
+                .withMinimumUploadPartSize(partSizeMb * 1024 * 1024)
+                .withExecutorFactory(() -> Executors.newFixedThreadPool(uploadThreads, threadFactory()))
+                .build();
+
+        urlPrefix = s3Client.getUrl(bucketName, "").toString();
+        System.out.println("S3 Storage Provider configuré pour: " + urlPrefix + " (URLs clientes: " + urlMode + ")");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (transferManager != null) {
+            // ferme aussi le client S3 et son pool de connexions
+            transferManager.shutdownNow(true);
+        }
+    }
+
+    @Override
+    public String uploadFile(File file, String contentType) {
+        return uploadFile(file, contentType, null);
+    }
+
+    @Override
+    public String uploadFile(File file, String contentType, Map<String, String> customTags) {
+        ObjectMetadata metadata = metadata(contentType, file.length(), customTags);
+        String key = newKey(file.getName());
+        return upload(withAcl(new PutObjectRequest(bucketName, key, file).withMetadata(metadata)), key);
+    }
+
+    /**
+     * Envoie un contenu déjà en mémoire (ex. PDF généré) sans passer par un fichier temporaire
+     */
+    @Override
+    public String uploadBytes(byte[] content, String fileName, String contentType, Map<String, String> customTags) {
+        ObjectMetadata metadata = metadata(contentType, content.length, customTags);
+        String key = newKey(fileName);
+        return upload(withAcl(new PutObjectRequest(bucketName, key, new ByteArrayInputStream(content), metadata)), key);
+    }
+
+    private PutObjectRequest withAcl(PutObjectRequest request) {
+        return "public-read".equals(urlMode) ? request.withCannedAcl(CannedAccessControlList.PublicRead) : request;
+    }
+
+    private String upload(PutObjectRequest request, String key) {
+        if (!isAvailable()) {
+            throw new IllegalStateException("S3 Storage Provider is not available");
+        }
+        try {
+            transferManager.upload(request).waitForCompletion();
+            String url = s3Client.getUrl(bucketName, key).toString();
+            System.out.println("✅ Upload réussi vers S3: " + url);
+            return url + "||" + key;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("S3 upload interrupted", e);
+        } catch (Exception e) {
+            System.err.println("❌ S3 upload failed: " + e.getMessage());
+            throw new RuntimeException("S3 upload failed: " + e.getMessage(), e);
+        }
+    }
+
+    private static ObjectMetadata metadata(String contentType, long length, Map<String, String> customTags) {
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentType(contentType);
+        metadata.setContentLength(length);
+        if (customTags != null) {
+            // les métadonnées S3 sont des en-têtes HTTP : ASCII uniquement (titres accentués encodés)
+            customTags.forEach((name, value) -> {
+                if (value != null) {
+                    metadata.addUserMetadata(name, URLEncoder.encode(value, StandardCharsets.UTF_8));
+                }
+            });
+        }
+        return metadata;
+    }
+
+    private static String newKey(String fileName) {
+        return KEY_PREFIX + UUID.randomUUID() + "-" + fileName;
+    }
+
+    @Override
+    public String getFileUrl(String fileName) {
+        return isAvailable() ? s3Client.getUrl(bucketName, fileName).toString() : null;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return enabled && s3Client != null;
+    }
+
+    @Override
+    public boolean canHandle(String fileUrl) {
+        return urlPrefix != null && fileUrl != null && fileUrl.startsWith(urlPrefix);
+    }
+
+    @Override
+    public boolean deleteFile(String fileUrl) {
+        if (!isAvailable() || !canHandle(fileUrl)) {
+            return false;
+        }
+        String key = keyOf(fileUrl);
+        try {
+            s3Client.deleteObject(bucketName, key);
+            System.out.println("✅ Objet S3 supprimé: " + key);
+            return true;
+        } catch (Exception e) {
+            System.err.println("❌ Erreur lors de la suppression S3: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * URL signée (GET, {@code aws.s3.presign-minutes}) ou de CDN : les objets privés ne sont pas lisibles par leur URL directe
+     */
+    @Override
+    public String toPublicUrl(String fileUrl) {
+        if (!isAvailable() || !canHandle(fileUrl)) {
+            return fileUrl;
+        }
+        String url = fileUrl.split("\\|\\|")[0];
+        return switch (urlMode) {
+            case "public-read" -> url;
+            case "cdn" -> publicUrlPrefix + url.substring(urlPrefix.length());
+            default -> s3Client.generatePresignedUrl(bucketName, keyOf(fileUrl),
+                    new Date(System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(presignMinutes)), HttpMethod.GET).toString();
+        };
+    }
+
+    private String keyOf(String fileUrl) {
+        String url = fileUrl.split("\\|\\|")[0];
+        return URLDecoder.decode(url.substring(urlPrefix.length()), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public int getPriority() {
+        return 1;
+    }
+
+    private static ThreadFactory threadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "s3-transfer-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
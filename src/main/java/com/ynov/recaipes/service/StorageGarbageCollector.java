@@ -0,0 +1,190 @@
+package com.ynov.recaipes.service;
+
+import com.ynov.recaipes.model.StorageTombstone;
+import com.ynov.recaipes.repository.PdfMetadataRepository;
+import com.ynov.recaipes.repository.RecipeRepository;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Ramasse-miettes du stockage, en tâche de fond :
+ * <ul>
+ *   <li>supprime les fichiers des pierres tombales, par lots et en parallèle, avec relances ;</li>
+ *   <li>balaie le dossier local à la recherche d'orphelins : images temporaires laissées par un
+ *       téléchargement interrompu et PDF qu'aucune recette ni métadonnée ne référence.</li>
+ * </ul>
+ * Seuls les fichiers plus anciens que {@code storage.gc.orphan.min-age-minutes} sont balayés,
+ * pour ne pas supprimer un PDF en cours de génération.
+ */
+@Component
+public class StorageGarbageCollector {
+
+    private final StorageTombstoneService tombstoneService;
+    private final StorageService storageService;
+    private final RecipeRepository recipeRepository;
+    private final PdfMetadataRepository pdfMetadataRepository;
+    private final Executor executor;
+
+    @Value("${storage.gc.enabled:true}")
+    private boolean enabled;
+
+    @Value("${pdf.storage.local.path:./pdfs}")
+    private String localStoragePath;
+
+    @Value("${storage.gc.orphan.enabled:true}")
+    private boolean orphanSweepEnabled;
+
+    @Value("${storage.gc.orphan.min-age-minutes:60}")
+    private long orphanMinAgeMinutes;
+
+    private final LongAdder deleted = new LongAdder();
+    private final LongAdder orphansDeleted = new LongAdder();
+
+    public StorageGarbageCollector(StorageTombstoneService tombstoneService, StorageService storageService,
+                                   RecipeRepository recipeRepository, PdfMetadataRepository pdfMetadataRepository,
+                                   @Qualifier("storageGcExecutor") Executor executor) {
+        this.tombstoneService = tombstoneService;
+        this.storageService = storageService;
+        this.recipeRepository = recipeRepository;
+        this.pdfMetadataRepository = pdfMetadataRepository;
+        this.executor = executor;
+    }
+
+    @Scheduled(initialDelayString = "${storage.gc.initial-delay-ms:10000}",
+            fixedDelayString = "${storage.gc.poll-interval-ms:10000}")
+    public void collect() {
+        if (!enabled) {
+            return;
+        }
+        List<StorageTombstone> batch;
+        do {
+            batch = tombstoneService.nextBatch();
+            collectBatch(batch);
+        } while (batch.size() == tombstoneService.getBatchSize());
+    }
+
+    /**
+     * Suppressions du lot en parallèle ; les résultats sont enregistrés une fois le lot terminé
+     */
+    void collectBatch(List<StorageTombstone> batch) {
+        List<StorageTombstone> toDelete = new ArrayList<>();
+        for (StorageTombstone tombstone : batch) {
+            if (tombstoneService.isStillReferenced(tombstone.getUrl())) {
+                tombstoneService.markSkipped(tombstone);
+            } else {
+                toDelete.add(tombstone);
+            }
+        }
+
+        List<CompletableFuture<Boolean>> results = toDelete.stream()
+                .map(tombstone -> deleteAsync(tombstone.getUrl()))
+                .toList();
+
+        for (int i = 0; i < toDelete.size(); i++) {
+            StorageTombstone tombstone = toDelete.get(i);
+            try {
+                if (results.get(i).join()) {
+                    deleted.increment();
+                    tombstoneService.markDone(tombstone);
+                } else {
+                    tombstoneService.recordFailure(tombstone, "Provider refused or failed to delete the file");
+                }
+            } catch (Exception e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                tombstoneService.recordFailure(tombstone, cause.getMessage());
+            }
+        }
+    }
+
+    private CompletableFuture<Boolean> deleteAsync(String fileUrl) {
+        try {
+            return CompletableFuture.supplyAsync(() -> storageService.deleteFile(fileUrl), executor);
+        } catch (RejectedExecutionException e) {
+            // pool saturé : suppression dans le thread du collecteur
+            return CompletableFuture.completedFuture(storageService.deleteFile(fileUrl));
+        }
+    }
+
+    @Scheduled(initialDelayString = "${storage.gc.orphan.initial-delay-ms:60000}",
+            fixedDelayString = "${storage.gc.orphan.interval-ms:3600000}")
+    public void sweepOrphans() {
+        if (!enabled || !orphanSweepEnabled) {
+            return;
+        }
+        Path directory = Paths.get(localStoragePath);
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+
+        Set<Path> referenced = referencedLocalFiles();
+        Instant cutoff = Instant.now().minus(orphanMinAgeMinutes, ChronoUnit.MINUTES);
+        int removed = 0;
+        // dossier plat et arborescence adressée par contenu (objects/ab/cd/), fichiers temporaires d'écritures interrompues
+        PathMatcher candidates = directory.getFileSystem().getPathMatcher("glob:*.{pdf,jpg,jpeg,png,tmp}");
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Path normalized = file.toAbsolutePath().normalize();
+                if (!candidates.matches(file.getFileName()) || referenced.contains(normalized) || !Files.isRegularFile(file)
+                        || Files.getLastModifiedTime(file).toInstant().isAfter(cutoff)) {
+                    continue;
+                }
+                if (Files.deleteIfExists(file)) {
+                    removed++;
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("⚠️ Balayage des fichiers orphelins interrompu: " + e.getMessage());
+        }
+        if (removed > 0) {
+            orphansDeleted.add(removed);
+            System.out.println("🧹 " + removed + " fichier(s) orphelin(s) supprimé(s) de " + directory);
+        }
+    }
+
+    /**
+     * Fichiers locaux encore utilisés : chemins des métadonnées PDF et URL file:// des recettes et métadonnées
+     */
+    private Set<Path> referencedLocalFiles() {
+        Set<Path> referenced = new HashSet<>();
+        pdfMetadataRepository.findAllLocalPaths().forEach(path -> referenced.add(normalize(path)));
+        pdfMetadataRepository.findLocalS3Urls().forEach(url -> referenced.add(normalize(url.substring(7))));
+        recipeRepository.findLocalPdfUrls().forEach(url -> referenced.add(normalize(url.substring(7))));
+        recipeRepository.findLocalImageUrls().forEach(url -> referenced.add(normalize(url.substring(7))));
+        return referenced;
+    }
+
+    private static Path normalize(String path) {
+        String plainPath = path.contains("||") ? path.split("\\|\\|")[0] : path;
+        return Paths.get(plainPath).toAbsolutePath().normalize();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(tombstoneService.getStats());
+        stats.put("enabled", enabled);
+        stats.put("deleted", deleted.sum());
+        stats.put("orphansDeleted", orphansDeleted.sum());
+        return stats;
+    }
+}
@@ -1,6 +1,10 @@
 package com.ynov.recaipes.service;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Map;
 
 public interface StorageProvider {
@@ -9,4 +13,50 @@ public interface StorageProvider {
     String getFileUrl(String fileName);
     boolean isAvailable();
     boolean deleteFile(String fileUrl);
+
+    /**
+     * Upload d'un contenu déjà en mémoire (ex. PDF généré). Par défaut, passe par un fichier temporaire ;
+     * les providers qui le peuvent l'envoient directement.
+     */
+    default String uploadBytes(byte[] content, String fileName, String contentType, Map<String, String> customTags) {
+        try {
+            Path directory = Files.createTempDirectory("upload-");
+            Path file = Files.write(directory.resolve(fileName), content);
+            try {
+                return uploadFile(file.toFile(), contentType, customTags);
+            } finally {
+                Files.deleteIfExists(file);
+                Files.deleteIfExists(directory);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to stage upload of " + fileName, e);
+        }
+    }
+
+    /**
+     * Ordre de préférence pour les uploads (plus petit = préféré). Le routage peut déclasser
+     * un provider lent ou en erreur au profit du suivant.
+     */
+    default int getPriority() {
+        return 100;
+    }
+
+    /**
+     * Indique si l'URL désigne un fichier stocké par ce provider (utilisé pour la suppression)
+     */
+    default boolean canHandle(String fileUrl) {
+        return false;
+    }
+
+    /**
+     * URL à donner aux clients pour un fichier de ce provider. Par défaut l'URL enregistrée elle-même ;
+     * un stockage privé peut renvoyer une URL signée à durée limitée.
+     */
+    default String toPublicUrl(String fileUrl) {
+        return fileUrl;
+    }
+
+    default String getName() {
+        return getClass().getSimpleName();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,333 @@
+package com.ynov.recaipes.service;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Choix du provider de stockage pour chaque upload.
+ * Pour chaque provider, on suit une moyenne mobile exponentielle (EWMA) de la latence et du taux d'erreur.
+ * Ordre : d'abord les providers sains, puis la priorité déclarée ({@link StorageProvider#getPriority()}),
+ * puis la latence. Un provider trop lent ou en erreur est déclassé au profit du suivant. Il est retenté
+ * après {@code storage.routing.recovery-ms}.
+ * Optionnellement, un upload trop lent est doublé vers le provider suivant : la première copie réussie est retenue,
+ * l'autre est supprimée.
+ */
+@Component
+public class StorageRouter {
+
+    private final List<StorageProvider> providers;
+    private final Executor executor;
+    private final Map<StorageProvider, ProviderStats> stats = new ConcurrentHashMap<>();
+
+    @Value("${storage.routing.ewma-alpha:0.2}")
+    private double alpha;
+
+    @Value("${storage.routing.max-error-rate:0.5}")
+    private double maxErrorRate;
+
+    @Value("${storage.routing.slow-threshold-ms:10000}")
+    private long slowThresholdMs;
+
+    @Value("${storage.routing.recovery-ms:30000}")
+    private long recoveryMs;
+
+    @Value("${storage.routing.hedge.enabled:false}")
+    private boolean hedgeEnabled;
+
+    @Value("${storage.routing.hedge.min-delay-ms:3000}")
+    private long hedgeMinDelayMs;
+
+    @Value("${storage.routing.hedge.latency-multiplier:3.0}")
+    private double hedgeLatencyMultiplier;
+
+    private final LongAdder hedged = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final LongAdder reconciled = new LongAdder();
+
+    public StorageRouter(List<StorageProvider> providers, @Qualifier("storageUploadExecutor") Executor executor) {
+        this.providers = providers;
+        this.executor = executor;
+    }
+
+    /**
+     * Providers disponibles, du plus au moins recommandé
+     */
+    public List<StorageProvider> rank() {
+        return rank(provider -> true);
+    }
+
+    private List<StorageProvider> rank(Predicate<StorageProvider> eligible) {
+        long now = System.nanoTime();
+        return providers.stream()
+                .filter(eligible)
+                .filter(StorageProvider::isAvailable)
+                .sorted(Comparator
+                        .comparing((StorageProvider p) -> isDegraded(p, now))
+                        .thenComparingInt(StorageProvider::getPriority)
+                        .thenComparingDouble(p -> statsFor(p).latencyMs()))
+                .toList();
+    }
+
+    public String upload(File file, String contentType, Map<String, String> customTags) {
+        return upload(file, contentType, customTags, provider -> true);
+    }
+
+    /**
+     * @param eligible restreint les providers candidats (ex. : stockages distants uniquement)
+     */
+    public String upload(File file, String contentType, Map<String, String> customTags,
+                         Predicate<StorageProvider> eligible) {
+        return route(provider -> customTags != null ?
+                provider.uploadFile(file, contentType, customTags) :
+                provider.uploadFile(file, contentType), eligible);
+    }
+
+    /**
+     * Upload d'un contenu en mémoire, sans fichier temporaire pour les providers qui le permettent
+     */
+    public String uploadBytes(byte[] content, String fileName, String contentType, Map<String, String> customTags) {
+        return route(provider -> provider.uploadBytes(content, fileName, contentType, customTags), provider -> true);
+    }
+
+    private String route(Function<StorageProvider, String> upload, Predicate<StorageProvider> eligible) {
+        List<StorageProvider> ranked = rank(eligible);
+        if (ranked.isEmpty()) {
+            throw new IllegalStateException("No available storage providers");
+        }
+
+        if (hedgeEnabled && ranked.size() > 1) {
+            return hedgedUpload(ranked, upload);
+        }
+        return sequentialUpload(ranked, 0, upload, null);
+    }
+
+    private String sequentialUpload(List<StorageProvider> ranked, int from, Function<StorageProvider, String> upload,
+                                    RuntimeException previousFailure) {
+        RuntimeException lastFailure = previousFailure;
+        for (int i = from; i < ranked.size(); i++) {
+            StorageProvider provider = ranked.get(i);
+            if (i > 0) {
+                System.out.println("Trying fallback provider: " + provider.getName());
+            } else {
+                System.out.println("Using storage provider: " + provider.getName());
+            }
+            try {
+                return timedUpload(provider, upload);
+            } catch (RuntimeException e) {
+                System.err.println("Upload failed with " + provider.getName() + ": " + e.getMessage());
+                lastFailure = e;
+            }
+        }
+        throw new RuntimeException("All storage providers failed", lastFailure);
+    }
+
+    /**
+     * Lance l'upload sur le meilleur provider ; s'il dépasse le délai de doublement, lance le même upload
+     * sur le suivant. La première copie réussie l'emporte, la copie perdante est supprimée dès qu'elle aboutit.
+     */
+    private String hedgedUpload(List<StorageProvider> ranked, Function<StorageProvider, String> upload) {
+        StorageProvider first = ranked.get(0);
+        StorageProvider second = ranked.get(1);
+        System.out.println("Using storage provider: " + first.getName() + " (doublé vers " + second.getName() + " si lent)");
+
+        CompletableFuture<String> primary;
+        try {
+            primary = CompletableFuture.supplyAsync(() -> timedUpload(first, upload), executor);
+        } catch (RejectedExecutionException e) {
+            return sequentialUpload(ranked, 0, upload, null);
+        }
+
+        try {
+            return primary.get(hedgeDelayMillis(first), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // upload plus lent que d'habitude : on le double
+        } catch (ExecutionException e) {
+            System.err.println("Upload failed with " + first.getName() + ": " + e.getCause().getMessage());
+            return sequentialUpload(ranked, 1, upload, asRuntime(e.getCause()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while uploading", e);
+        }
+
+        CompletableFuture<String> secondary;
+        try {
+            secondary = CompletableFuture.supplyAsync(() -> timedUpload(second, upload), executor);
+        } catch (RejectedExecutionException e) {
+            return awaitOrFallback(primary, ranked, upload);
+        }
+        hedged.increment();
+        System.out.println("⏱️ Upload lent sur " + first.getName() + ", doublé vers " + second.getName());
+
+        CompletableFuture<String> winner = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        primary.whenComplete((url, error) -> settle(winner, url, error, first, failures, false));
+        secondary.whenComplete((url, error) -> settle(winner, url, error, second, failures, true));
+
+        try {
+            return winner.get();
+        } catch (ExecutionException e) {
+            return sequentialUpload(ranked, 2, upload, asRuntime(e.getCause()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while uploading", e);
+        }
+    }
+
+    private void settle(CompletableFuture<String> winner, String url, Throwable error, StorageProvider provider,
+                        AtomicInteger failures, boolean isHedge) {
+        if (error != null) {
+            if (failures.incrementAndGet() == 2) {
+                winner.completeExceptionally(error);
+            }
+            return;
+        }
+        if (winner.complete(url)) {
+            if (isHedge) {
+                hedgeWins.increment();
+            }
+            return;
+        }
+        // L'autre copie a déjà été retenue : celle-ci est orpheline
+        reconciled.increment();
+        try {
+            boolean deleted = provider.deleteFile(url);
+            System.out.println("🧹 Copie perdante supprimée de " + provider.getName() + ": " + (deleted ? "✅" : "⚠️ échec"));
+        } catch (Exception e) {
+            System.err.println("⚠️ Impossible de supprimer la copie perdante sur " + provider.getName() + ": " + e.getMessage());
+        }
+    }
+
+    private String awaitOrFallback(CompletableFuture<String> primary, List<StorageProvider> ranked,
+                                   Function<StorageProvider, String> upload) {
+        try {
+            return primary.get();
+        } catch (ExecutionException e) {
+            return sequentialUpload(ranked, 1, upload, asRuntime(e.getCause()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while uploading", e);
+        }
+    }
+
+    private String timedUpload(StorageProvider provider, Function<StorageProvider, String> upload) {
+        long start = System.nanoTime();
+        try {
+            String result = upload.apply(provider);
+            statsFor(provider).record(System.nanoTime() - start, false);
+            return result;
+        } catch (RuntimeException e) {
+            statsFor(provider).record(System.nanoTime() - start, true);
+            throw e;
+        }
+    }
+
+    long hedgeDelayMillis(StorageProvider provider) {
+        ProviderStats providerStats = statsFor(provider);
+        if (providerStats.samples() == 0) {
+            return hedgeMinDelayMs;
+        }
+        return Math.max(hedgeMinDelayMs, (long) (providerStats.latencyMs() * hedgeLatencyMultiplier));
+    }
+
+    private boolean isDegraded(StorageProvider provider, long now) {
+        ProviderStats providerStats = statsFor(provider);
+        if (providerStats.samples() == 0 || now - providerStats.lastUseNanos() > TimeUnit.MILLISECONDS.toNanos(recoveryMs)) {
+            return false;
+        }
+        return providerStats.errorRate() > maxErrorRate || providerStats.latencyMs() > slowThresholdMs;
+    }
+
+    private ProviderStats statsFor(StorageProvider provider) {
+        return stats.computeIfAbsent(provider, p -> new ProviderStats(alpha));
+    }
+
+    private static RuntimeException asRuntime(Throwable cause) {
+        return cause instanceof RuntimeException re ? re : new RuntimeException(cause);
+    }
+
+    public Map<String, Object> getStats() {
+        long now = System.nanoTime();
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (StorageProvider provider : providers) {
+            ProviderStats providerStats = statsFor(provider);
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("priority", provider.getPriority());
+            map.put("available", provider.isAvailable());
+            map.put("degraded", isDegraded(provider, now));
+            map.put("ewmaLatencyMs", Math.round(providerStats.latencyMs()));
+            map.put("ewmaErrorRate", providerStats.errorRate());
+            map.put("uploads", providerStats.samples());
+            result.put(provider.getName(), map);
+        }
+        result.put("hedged", hedged.sum());
+        result.put("hedgeWins", hedgeWins.sum());
+        result.put("reconciled", reconciled.sum());
+        return result;
+    }
+
+    /**
+     * Moyennes mobiles exponentielles de la latence (ms) et du taux d'erreur (0 à 1) d'un provider
+     */
+    static final class ProviderStats {
+        private final double alpha;
+        private double latencyMs;
+        private double errorRate;
+        private long samples;
+        private long lastUseNanos;
+
+        ProviderStats(double alpha) {
+            this.alpha = alpha;
+        }
+
+        synchronized void record(long elapsedNanos, boolean failed) {
+            double millis = elapsedNanos / 1_000_000.0;
+            double error = failed ? 1.0 : 0.0;
+            // un échec peut être immédiat (circuit ouvert) : seule la latence des succès est moyennée
+            if (samples == 0) {
+                latencyMs = failed ? 0 : millis;
+                errorRate = error;
+            } else {
+                if (!failed) {
+                    latencyMs = latencyMs == 0 ? millis : latencyMs + alpha * (millis - latencyMs);
+                }
+                errorRate += alpha * (error - errorRate);
+            }
+            samples++;
+            lastUseNanos = System.nanoTime();
+        }
+
+        synchronized double latencyMs() {
+            return latencyMs;
+        }
+
+        synchronized double errorRate() {
+            return errorRate;
+        }
+
+        synchronized long samples() {
+            return samples;
+        }
+
+        synchronized long lastUseNanos() {
+            return lastUseNanos;
+        }
+    }
+}
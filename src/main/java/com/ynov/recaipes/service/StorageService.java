@@ -1,10 +1,15 @@
 package com.ynov.recaipes.service;
 
+import com.ynov.recaipes.model.StoredObject;
+import com.ynov.recaipes.repository.StoredObjectRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Paths;
@@ -15,10 +20,17 @@ import java.util.stream.Collectors;
 public class StorageService {
 
     private final List<StorageProvider> storageProviders;
+    private final RestTemplate restTemplate;
+    private final StorageRouter storageRouter;
+    private final StoredObjectRepository storedObjectRepository;
 
     @Autowired
-    public StorageService(List<StorageProvider> storageProviders) {
+    public StorageService(List<StorageProvider> storageProviders, RestTemplate restTemplate, StorageRouter storageRouter,
+                          StoredObjectRepository storedObjectRepository) {
         this.storageProviders = storageProviders;
+        this.restTemplate = restTemplate;
+        this.storageRouter = storageRouter;
+        this.storedObjectRepository = storedObjectRepository;
 
         String providers = storageProviders.stream()
                 .map(p -> p.getClass().getSimpleName() + " (available: " + p.isAvailable() + ")")
@@ -30,59 +42,73 @@ public class StorageService {
         return uploadFile(file, contentType, null);
     }
 
+    /**
+     * Upload vers le provider choisi par le {@link StorageRouter} (priorité, latence et taux d'erreur observés),
+     * avec repli sur les suivants en cas d'échec
+     */
     public String uploadFile(File file, String contentType, Map<String, String> customTags) {
         if (storageProviders.isEmpty()) {
             throw new IllegalStateException("No storage providers available");
         }
+        return recordStoredObject(storageRouter.upload(file, contentType, customTags));
+    }
 
-        List<StorageProvider> orderedProviders = new ArrayList<>();
-
-        // 1. Bucket externe en priorité
-        storageProviders.stream()
-                .filter(p -> p instanceof ExternalBucketProvider)
-                .filter(StorageProvider::isAvailable)
-                .findFirst()
-                .ifPresent(orderedProviders::add);
-
-        // 2. Stockage local en fallback
-        storageProviders.stream()
-                .filter(p -> p instanceof LocalStorageProvider)
-                .filter(StorageProvider::isAvailable)
-                .findFirst()
-                .ifPresent(orderedProviders::add);
-
-        if (orderedProviders.isEmpty()) {
-            throw new IllegalStateException("No available storage providers");
+    /**
+     * Upload d'un contenu en mémoire (PDF généré) : envoyé directement, sans fichier intermédiaire
+     */
+    public String uploadBytes(byte[] content, String fileName, String contentType, Map<String, String> customTags) {
+        if (storageProviders.isEmpty()) {
+            throw new IllegalStateException("No storage providers available");
         }
+        return recordStoredObject(storageRouter.uploadBytes(content, fileName, contentType, customTags));
+    }
 
-        StorageProvider selectedProvider = orderedProviders.get(0);
-        System.out.println("Using storage provider: " + selectedProvider.getClass().getSimpleName());
+    /**
+     * Upload vers un stockage distant uniquement (le fichier est déjà conservé localement)
+     */
+    public String uploadFileRemote(File file, String contentType, Map<String, String> customTags) {
+        return recordStoredObject(storageRouter.upload(file, contentType, customTags, p -> !(p instanceof LocalStorageProvider)));
+    }
 
-        try {
-            String result = customTags != null ?
-                    selectedProvider.uploadFile(file, contentType, customTags) :
-                    selectedProvider.uploadFile(file, contentType);
-            return result;
-        } catch (Exception e) {
-            System.err.println("Upload failed with " + selectedProvider.getClass().getSimpleName() +
-                    ": " + e.getMessage());
+    /**
+     * Mémorise l'identifiant natif renvoyé par le provider ("url||id") pour supprimer l'objet en un seul appel
+     */
+    private String recordStoredObject(String uploadResult) {
+        String[] parts = uploadResult.split("\\|\\|");
+        String url = parts[0];
+        String nativeId = parts.length > 1 && !parts[1].isEmpty() ? parts[1] : null;
+        String provider = findOwner(url).map(StorageProvider::getName).orElse(null);
+        storedObjectRepository.save(new StoredObject(url, provider, nativeId));
+        return uploadResult;
+    }
 
-            if (orderedProviders.size() > 1) {
-                StorageProvider fallbackProvider = orderedProviders.get(1);
-                System.out.println("Trying fallback provider: " + fallbackProvider.getClass().getSimpleName());
-                String result = customTags != null ?
-                        fallbackProvider.uploadFile(file, contentType, customTags) :
-                        fallbackProvider.uploadFile(file, contentType);
+    /**
+     * URL à donner aux clients (URL signée pour un bucket privé) ; l'URL enregistrée reste inchangée
+     */
+    public String toPublicUrl(String fileUrl) {
+        if (fileUrl == null || fileUrl.isEmpty()) {
+            return fileUrl;
+        }
+        return findOwner(fileUrl).map(p -> p.toPublicUrl(fileUrl)).orElse(fileUrl);
+    }
 
-                return result;
-            }
+    /**
+     * Vrai si l'URL désigne un objet de l'un de nos stockages (et non une URL externe temporaire)
+     */
+    public boolean isManagedUrl(String fileUrl) {
+        return findOwner(fileUrl).isPresent();
+    }
 
-            throw new RuntimeException("All storage providers failed", e);
-        }
+    private Optional<StorageProvider> findOwner(String fileUrl) {
+        return storageProviders.stream()
+                .filter(p -> p.canHandle(fileUrl))
+                .findFirst();
     }
 
     /**
-     * Supprimer un fichier du stockage
+     * Supprimer un fichier du stockage.
+     * Le provider et l'identifiant natif viennent de la table stored_object quand l'objet y figure ;
+     * sinon le provider est déduit de l'URL.
      */
     public boolean deleteFile(String fileUrl) {
         if (fileUrl == null || fileUrl.isEmpty()) {
@@ -92,32 +118,39 @@ public class StorageService {
 
         System.out.println("🗑️ Tentative de suppression du fichier: " + fileUrl);
 
+        String plainUrl = fileUrl.split("\\|\\|")[0];
+        StoredObject stored = storedObjectRepository.findFirstByUrlOrderByIdDesc(plainUrl).orElse(null);
+        StorageProvider targetProvider = stored == null ? null : storageProviders.stream()
+                .filter(p -> p.getName().equals(stored.getProvider()))
+                .findFirst()
+                .orElse(null);
+        if (targetProvider == null) {
+            targetProvider = findOwner(fileUrl).orElse(null);
+        }
+
         // Ignorer les URLs externes qui ne sont pas sur nos buckets
-        if (isExternalNonDeletableUrl(fileUrl)) {
+        if (targetProvider == null && isExternalNonDeletableUrl(fileUrl)) {
             System.out.println("⚠️ Fichier externe non supprimable ignoré: " + fileUrl);
             return true; // On considère comme "réussi" car on ne peut pas/ne veut pas le supprimer
         }
 
-        // Identifier le type de stockage basé sur l'URL
-        StorageProvider targetProvider = null;
-
-        if (fileUrl.startsWith("file://")) {
-            // Fichier local
-            targetProvider = getLocalProvider();
-        } else if (fileUrl.contains("141.94.115.201") || fileUrl.contains("/public/file/")) {
-            // Bucket externe - vérifier que ce n'est pas "unknown"
-            if (fileUrl.contains("/unknown")) {
-                System.err.println("⚠️ Fichier avec ID 'unknown' - probablement pas uploadé correctement");
-                return true; // Pas d'erreur, mais pas de suppression nécessaire
-            }
-            targetProvider = getExternalBucketProvider();
+        // Bucket externe - vérifier que ce n'est pas "unknown"
+        if (targetProvider instanceof ExternalBucketProvider && fileUrl.contains("/unknown")) {
+            System.err.println("⚠️ Fichier avec ID 'unknown' - probablement pas uploadé correctement");
+            return true; // Pas d'erreur, mais pas de suppression nécessaire
         }
 
         if (targetProvider != null && targetProvider.isAvailable()) {
+            String target = stored != null && stored.getNativeId() != null && !fileUrl.contains("||")
+                    ? plainUrl + "||" + stored.getNativeId()
+                    : fileUrl;
             try {
-                boolean success = targetProvider.deleteFile(fileUrl);
+                boolean success = targetProvider.deleteFile(target);
                 if (success) {
                     System.out.println("✅ Fichier supprimé avec succès: " + fileUrl);
+                    if (stored != null) {
+                        storedObjectRepository.delete(stored);
+                    }
                 } else {
                     System.err.println("❌ Échec de la suppression: " + fileUrl);
                 }
@@ -187,15 +220,35 @@ public class StorageService {
     }
 
     public String downloadImage(String imageUrl, String destinationDir) throws IOException {
-        try {
-            URL url = new URL(imageUrl);
-            String fileName = UUID.randomUUID() + ".jpg";
-            String filePath = destinationDir + File.separator + fileName;
+        String fileName = UUID.randomUUID() + ".jpg";
+        String filePath = destinationDir + File.separator + fileName;
+
+        Files.write(Paths.get(filePath), downloadImageBytes(imageUrl));
 
-            byte[] imageBytes = url.openStream().readAllBytes();
-            Files.write(Paths.get(filePath), imageBytes);
+        return filePath;
+    }
 
-            return filePath;
+    /**
+     * Télécharge une image en mémoire, sans fichier temporaire.
+     * Les URLs http(s) passent par le pool de connexions partagé.
+     */
+    public byte[] downloadImageBytes(String imageUrl) throws IOException {
+        if (imageUrl.startsWith("http://") || imageUrl.startsWith("https://")) {
+            try {
+                // URI.create : l'URL signée est déjà encodée, elle ne doit pas l'être une seconde fois
+                byte[] bytes = restTemplate.getForObject(URI.create(imageUrl), byte[].class);
+                if (bytes == null) {
+                    throw new IOException("Empty image response");
+                }
+                return bytes;
+            } catch (IOException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException("Failed to download image: " + e.getMessage(), e);
+            }
+        }
+        try (InputStream in = new URL(imageUrl).openStream()) {
+            return in.readAllBytes();
         } catch (Exception e) {
             throw new IOException("Failed to download image: " + e.getMessage(), e);
         }
@@ -0,0 +1,113 @@
+package com.ynov.recaipes.service;
+
+import com.ynov.recaipes.model.StorageTombstone;
+import com.ynov.recaipes.repository.PdfMetadataRepository;
+import com.ynov.recaipes.repository.RecipeRepository;
+import com.ynov.recaipes.repository.StorageTombstoneRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pierres tombales (table storage_tombstone) des fichiers à supprimer après la suppression d'une recette.
+ * La suppression d'une recette ne fait qu'inscrire ses fichiers ici ; {@link StorageGarbageCollector}
+ * les supprime ensuite en tâche de fond.
+ */
+@Service
+@RequiredArgsConstructor
+public class StorageTombstoneService {
+
+    private final StorageTombstoneRepository tombstoneRepository;
+    private final RecipeRepository recipeRepository;
+    private final PdfMetadataRepository pdfMetadataRepository;
+
+    @Value("${storage.gc.batch-size:20}")
+    private int batchSize;
+
+    @Value("${storage.gc.max-attempts:6}")
+    private int maxAttempts;
+
+    @Value("${storage.gc.retry.base-delay-seconds:30}")
+    private long retryBaseDelaySeconds;
+
+    @Value("${storage.gc.retry.max-delay-seconds:3600}")
+    private long retryMaxDelaySeconds;
+
+    public void enqueue(Collection<String> fileUrls) {
+        List<StorageTombstone> tombstones = fileUrls.stream().map(StorageTombstone::new).toList();
+        tombstoneRepository.saveAll(tombstones);
+        System.out.println("🪦 " + tombstones.size() + " fichier(s) marqué(s) pour suppression");
+    }
+
+    public List<StorageTombstone> nextBatch() {
+        return tombstoneRepository.findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(
+                StorageTombstone.Status.PENDING, LocalDateTime.now(), PageRequest.of(0, batchSize));
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Vérifié au moment de la suppression : le fichier peut être partagé avec une copie issue du cache
+     */
+    public boolean isStillReferenced(String fileUrl) {
+        fileUrl = fileUrl.split("\\|\\|")[0]; // "url||id" : seule l'URL est enregistrée dans les recettes
+        if (fileUrl.startsWith("file://")) {
+            return pdfMetadataRepository.existsByLocalPath(fileUrl.substring(7))
+                    || pdfMetadataRepository.existsByS3Url(fileUrl)
+                    || recipeRepository.existsByPdfUrl(fileUrl)
+                    || recipeRepository.existsByImageUrl(fileUrl);
+        }
+        return recipeRepository.existsByPdfUrl(fileUrl)
+                || recipeRepository.existsByImageUrl(fileUrl)
+                || pdfMetadataRepository.existsByS3Url(fileUrl);
+    }
+
+    public void markDone(StorageTombstone tombstone) {
+        finish(tombstone, StorageTombstone.Status.DONE);
+    }
+
+    public void markSkipped(StorageTombstone tombstone) {
+        finish(tombstone, StorageTombstone.Status.SKIPPED);
+    }
+
+    /**
+     * Échec de suppression : nouvelle tentative avec un délai exponentiel, abandon après {@code storage.gc.max-attempts}
+     */
+    public void recordFailure(StorageTombstone tombstone, String error) {
+        tombstone.setAttempts(tombstone.getAttempts() + 1);
+        tombstone.setLastError(error != null && error.length() > 1000 ? error.substring(0, 1000) : error);
+        if (tombstone.getAttempts() >= maxAttempts) {
+            tombstone.setStatus(StorageTombstone.Status.FAILED);
+            tombstone.setCompletedAt(LocalDateTime.now());
+            System.err.println("❌ Suppression abandonnée après " + tombstone.getAttempts() + " tentatives: " + tombstone.getUrl());
+        } else {
+            long delay = Math.min(retryMaxDelaySeconds, retryBaseDelaySeconds << Math.min(tombstone.getAttempts() - 1, 20));
+            tombstone.setNextAttemptAt(LocalDateTime.now().plusSeconds(delay));
+            System.err.println("⚠️ Suppression de " + tombstone.getUrl() + " en échec, nouvel essai dans " + delay + " s");
+        }
+        tombstoneRepository.save(tombstone);
+    }
+
+    private void finish(StorageTombstone tombstone, StorageTombstone.Status status) {
+        tombstone.setStatus(status);
+        tombstone.setCompletedAt(LocalDateTime.now());
+        tombstoneRepository.save(tombstone);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (StorageTombstone.Status status : StorageTombstone.Status.values()) {
+            stats.put(status.name().toLowerCase(), tombstoneRepository.countByStatus(status));
+        }
+        return stats;
+    }
+}
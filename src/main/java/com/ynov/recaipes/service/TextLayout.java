@@ -0,0 +1,233 @@
+package com.ynov.recaipes.service;
+
+import org.apache.pdfbox.pdmodel.font.PDFont;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Mise en page du texte des PDF : largeurs et découpage en lignes.
+ * Chaque police a une table d'avances par caractère (unités de 1/1000 em, précalculée pour Latin-1, complétée
+ * à la demande au-delà) ; la largeur à une taille donnée s'en déduit par simple multiplication.
+ * Le découpage parcourt le texte une seule fois en cumulant les largeurs, sans construire de chaîne intermédiaire.
+ * Les lignes produites sont identiques à l'ancien découpage (largeur recalculée à chaque mot) : les avances
+ * sont additionnées dans le même ordre que {@link PDFont#getStringWidth(String)}.
+ */
+public final class TextLayout {
+
+    private static final Map<PDFont, TextLayout> LAYOUTS = new ConcurrentHashMap<>();
+    private static final int TABLE_SIZE = 256;
+
+    private final PDFont font;
+    private final float[] advances = new float[TABLE_SIZE];
+    private final Map<Character, Float> extraAdvances = new ConcurrentHashMap<>();
+
+    private TextLayout(PDFont font) {
+        this.font = font;
+        for (char c = 0; c < TABLE_SIZE; c++) {
+            try {
+                advances[c] = font.getStringWidth(String.valueOf(c));
+            } catch (IllegalArgumentException e) {
+                advances[c] = Float.NaN; // pas de glyphe dans l'encodage de la police
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    public static TextLayout of(PDFont font) {
+        return LAYOUTS.computeIfAbsent(font, TextLayout::new);
+    }
+
+    /**
+     * Avance d'un caractère, en 1/1000 em.
+     *
+     * @throws IllegalArgumentException si la police ne peut pas encoder le caractère (comme {@code getStringWidth})
+     */
+    float advance(char c) throws IOException {
+        float advance = lookup(c);
+        if (Float.isNaN(advance)) {
+            return font.getStringWidth(String.valueOf(c)); // lève l'exception de PDFBox
+        }
+        return advance;
+    }
+
+    // NaN : caractère sans glyphe (mémorisé, pour ne lever l'exception de PDFBox qu'une fois par caractère)
+    private float lookup(char c) throws IOException {
+        if (c < TABLE_SIZE) {
+            return advances[c];
+        }
+        Float advance = extraAdvances.get(c);
+        if (advance == null) {
+            try {
+                advance = font.getStringWidth(String.valueOf(c));
+            } catch (IllegalArgumentException e) {
+                advance = Float.NaN;
+            }
+            extraAdvances.put(c, advance);
+        }
+        return advance;
+    }
+
+    public boolean canRender(char c) throws IOException {
+        return !Float.isNaN(lookup(c));
+    }
+
+    /**
+     * Texte affichable avec cette police, sans exception au rendu : les caractères sans glyphe sont remplacés
+     * par leur décomposition (ligatures, lettres accentuées) si elle est affichable, les emoji et symboles
+     * sont retirés, le reste devient « ? ». Les retours à la ligne sont conservés, les tabulations deviennent
+     * des espaces. Le texte est renvoyé tel quel (sans copie) s'il est entièrement affichable.
+     */
+    public String renderable(String text) throws IOException {
+        int i = 0;
+        while (i < text.length() && isKept(text.charAt(i))) {
+            i++;
+        }
+        if (i == text.length()) {
+            return text;
+        }
+
+        StringBuilder result = new StringBuilder(text.length()).append(text, 0, i);
+        while (i < text.length()) {
+            int codePoint = text.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT && isKept((char) codePoint)) {
+                result.append((char) codePoint);
+            } else if (codePoint == '\t') {
+                result.append(' ');
+            } else {
+                appendFallback(result, codePoint);
+            }
+        }
+        return result.toString();
+    }
+
+    private boolean isKept(char c) throws IOException {
+        return c == '\n' || c == '\r' || (!Character.isSurrogate(c) && canRender(c));
+    }
+
+    private void appendFallback(StringBuilder result, int codePoint) throws IOException {
+        String decomposed = Normalizer.normalize(new String(Character.toChars(codePoint)), Normalizer.Form.NFKD);
+        int length = result.length();
+        for (int j = 0; j < decomposed.length(); j++) {
+            char c = decomposed.charAt(j);
+            if (!Character.isSurrogate(c) && canRender(c)) {
+                result.append(c);
+            }
+        }
+        if (result.length() > length) {
+            return;
+        }
+        switch (Character.getType(codePoint)) {
+            case Character.OTHER_SYMBOL, Character.FORMAT, Character.CONTROL, Character.NON_SPACING_MARK,
+                 Character.ENCLOSING_MARK, Character.PRIVATE_USE, Character.UNASSIGNED -> {
+                // emoji, sélecteurs de variante, ZWJ... : purement décoratifs
+            }
+            default -> result.append(canRender('?') ? "?" : "");
+        }
+    }
+
+    /**
+     * Largeur du texte en points
+     */
+    public float width(CharSequence text, float fontSize) throws IOException {
+        return toPoints(units(text, 0, text.length()), fontSize);
+    }
+
+    /**
+     * Découpe le texte en lignes d'au plus {@code maxWidth} points : retours à la ligne conservés (les lignes vides
+     * finales sont ignorées), coupure aux espaces, un mot plus large que la ligne occupe une ligne à lui seul.
+     */
+    public List<String> wrap(String text, float fontSize, float maxWidth) throws IOException {
+        List<String> lines = new ArrayList<>();
+        int end = text.length();
+        while (end > 0 && (text.charAt(end - 1) == '\n' || text.charAt(end - 1) == '\r')) {
+            end--;
+        }
+        int lineStart = 0;
+        while (lineStart < end) {
+            int lineEnd = lineStart;
+            while (lineEnd < end && text.charAt(lineEnd) != '\n' && text.charAt(lineEnd) != '\r') {
+                lineEnd++;
+            }
+            wrapLine(text, lineStart, lineEnd, fontSize, maxWidth, lines);
+            lineStart = lineEnd + (lineEnd + 1 < text.length() && text.charAt(lineEnd) == '\r' && text.charAt(lineEnd + 1) == '\n' ? 2 : 1);
+        }
+        return lines;
+    }
+
+    private void wrapLine(String text, int start, int end, float fontSize, float maxWidth, List<String> lines) throws IOException {
+        if (toPoints(units(text, start, end), fontSize) <= maxWidth) {
+            lines.add(text.substring(start, end));
+            return;
+        }
+
+        // mots séparés par un espace ; les mots vides finaux sont ignorés (comme String.split)
+        int wordsEnd = end;
+        while (wordsEnd > start && text.charAt(wordsEnd - 1) == ' ') {
+            wordsEnd--;
+        }
+        float space = advance(' ');
+
+        // la ligne en cours est toujours un extrait contigu du texte : [currentStart, currentEnd)
+        int currentStart = -1;
+        int currentEnd = -1;
+        float currentUnits = 0;
+        int wordStart = start;
+        while (wordStart <= wordsEnd && wordsEnd > start) {
+            int wordEnd = wordStart;
+            while (wordEnd < wordsEnd && text.charAt(wordEnd) != ' ') {
+                wordEnd++;
+            }
+            boolean hasCurrent = currentStart >= 0;
+            float wordUnits = units(text, wordStart, wordEnd);
+            float candidateUnits = wordUnits;
+            if (hasCurrent) {
+                candidateUnits = currentUnits + space;
+                for (int i = wordStart; i < wordEnd; i++) {
+                    candidateUnits += advance(text.charAt(i));
+                }
+            }
+
+            if (toPoints(candidateUnits, fontSize) <= maxWidth) {
+                if (hasCurrent) {
+                    currentEnd = wordEnd;
+                    currentUnits = candidateUnits;
+                } else if (wordEnd > wordStart) {
+                    currentStart = wordStart;
+                    currentEnd = wordEnd;
+                    currentUnits = wordUnits;
+                }
+            } else if (hasCurrent) {
+                lines.add(text.substring(currentStart, currentEnd));
+                currentStart = wordEnd > wordStart ? wordStart : -1;
+                currentEnd = wordEnd;
+                currentUnits = wordUnits;
+            } else {
+                lines.add(text.substring(wordStart, wordEnd));
+            }
+            wordStart = wordEnd + 1;
+        }
+        if (currentStart >= 0) {
+            lines.add(text.substring(currentStart, currentEnd));
+        }
+    }
+
+    private float units(CharSequence text, int start, int end) throws IOException {
+        float units = 0;
+        for (int i = start; i < end; i++) {
+            units += advance(text.charAt(i));
+        }
+        return units;
+    }
+
+    private static float toPoints(float units, float fontSize) {
+        return units / 1000 * fontSize;
+    }
+}
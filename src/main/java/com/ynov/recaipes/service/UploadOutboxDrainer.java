@@ -0,0 +1,57 @@
+package com.ynov.recaipes.service;
+
+import com.ynov.recaipes.model.UploadOutboxEntry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Envoie en tâche de fond les uploads de la table upload_outbox, par lots.
+ * Les entrées survivent à un redémarrage : celles en attente sont reprises au prochain passage.
+ */
+@Component
+@RequiredArgsConstructor
+public class UploadOutboxDrainer {
+
+    private final UploadOutboxService outboxService;
+    private final StorageService storageService;
+
+    @Scheduled(initialDelayString = "${storage.outbox.initial-delay-ms:5000}",
+            fixedDelayString = "${storage.outbox.poll-interval-ms:5000}")
+    public void drain() {
+        if (!outboxService.isEnabled()) {
+            return;
+        }
+        List<UploadOutboxEntry> batch;
+        do {
+            batch = outboxService.nextBatch();
+            for (UploadOutboxEntry entry : batch) {
+                process(entry);
+            }
+        } while (batch.size() == outboxService.getBatchSize());
+    }
+
+    void process(UploadOutboxEntry entry) {
+        try {
+            if (entry.getRemoteUrl() == null) {
+                if (!outboxService.isStillReferenced(entry)) {
+                    outboxService.cancel(entry);
+                    return;
+                }
+                File file = new File(entry.getLocalPath());
+                if (!file.exists()) {
+                    outboxService.recordFailure(entry, "Local file not found: " + entry.getLocalPath());
+                    return;
+                }
+                String uploadResult = storageService.uploadFileRemote(file, entry.getContentType(), outboxService.readTags(entry));
+                outboxService.recordUpload(entry, uploadResult);
+            }
+            outboxService.swapToRemote(entry);
+        } catch (Exception e) {
+            outboxService.recordFailure(entry, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.ynov.recaipes.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ynov.recaipes.model.PdfMetadata;
+import com.ynov.recaipes.model.Recipe;
+import com.ynov.recaipes.model.UploadOutboxEntry;
+import com.ynov.recaipes.repository.PdfMetadataRepository;
+import com.ynov.recaipes.repository.RecipeRepository;
+import com.ynov.recaipes.repository.UploadOutboxRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * File d'attente persistante (table upload_outbox) des uploads distants de PDF.
+ * La requête de génération enregistre le PDF localement, renvoie une URL provisoire et
+ * inscrit l'upload ici ; {@link UploadOutboxDrainer} l'envoie ensuite en tâche de fond.
+ */
+@Service
+@RequiredArgsConstructor
+public class UploadOutboxService {
+
+    private final UploadOutboxRepository outboxRepository;
+    private final RecipeRepository recipeRepository;
+    private final PdfMetadataRepository pdfMetadataRepository;
+    private final StorageTombstoneService storageTombstoneService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${storage.outbox.enabled:true}")
+    private boolean enabled;
+
+    @Value("${storage.outbox.batch-size:10}")
+    private int batchSize;
+
+    @Value("${storage.outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${storage.outbox.retry.base-delay-seconds:30}")
+    private long retryBaseDelaySeconds;
+
+    @Value("${storage.outbox.retry.max-delay-seconds:3600}")
+    private long retryMaxDelaySeconds;
+
+    // Délai avant de retenter le remplacement quand la recette n'est pas encore enregistrée avec l'URL provisoire
+    @Value("${storage.outbox.poll-interval-ms:5000}")
+    private long pollIntervalMs;
+
+    // Au-delà, une recette qui n'a jamais reçu l'URL provisoire (génération échouée après le PDF) est abandonnée
+    @Value("${storage.outbox.swap-timeout-seconds:600}")
+    private long swapTimeoutSeconds;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public UploadOutboxEntry enqueue(Long recipeId, String localPath, String contentType,
+                                     Map<String, String> tags, String provisionalUrl) {
+        UploadOutboxEntry entry = new UploadOutboxEntry();
+        entry.setRecipeId(recipeId);
+        entry.setLocalPath(localPath);
+        entry.setContentType(contentType);
+        entry.setTags(writeTags(tags));
+        entry.setProvisionalUrl(provisionalUrl);
+        UploadOutboxEntry saved = outboxRepository.save(entry);
+        System.out.println("📮 Upload distant mis en file (#" + saved.getId() + ") pour la recette " + recipeId);
+        return saved;
+    }
+
+    public List<UploadOutboxEntry> nextBatch() {
+        return outboxRepository.findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(
+                UploadOutboxEntry.Status.PENDING, LocalDateTime.now(), PageRequest.of(0, batchSize));
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Le PDF est-il encore utilisé par une recette ou des métadonnées ? Sinon l'upload est annulé.
+     */
+    public boolean isStillReferenced(UploadOutboxEntry entry) {
+        return pdfMetadataRepository.existsByS3Url(entry.getProvisionalUrl())
+                || recipeRepository.existsByPdfUrl(entry.getProvisionalUrl());
+    }
+
+    public void recordUpload(UploadOutboxEntry entry, String uploadResult) {
+        String[] parts = uploadResult.split("\\|\\|");
+        entry.setRemoteUrl(parts[0]);
+        entry.setRemoteId(parts.length > 1 && !parts[1].isEmpty() ? parts[1] : null);
+        entry.setLastError(null);
+        outboxRepository.save(entry);
+    }
+
+    /**
+     * Remplace l'URL provisoire par l'URL distante dans les recettes (y compris leurs copies) et les métadonnées.
+     * Tant que la génération n'a pas enregistré la recette avec l'URL provisoire, le remplacement est reporté,
+     * au plus {@code storage.outbox.swap-timeout-seconds}. Une entrée annulée ou abandonnée après l'upload
+     * confie la copie distante, que plus rien ne référence, au {@link StorageGarbageCollector}.
+     *
+     * @return true si l'entrée est terminée (remplacée, annulée ou abandonnée)
+     */
+    @Transactional
+    public boolean swapToRemote(UploadOutboxEntry entry) {
+        List<Recipe> recipes = recipeRepository.findByPdfUrl(entry.getProvisionalUrl());
+        List<PdfMetadata> metadata = pdfMetadataRepository.findByS3Url(entry.getProvisionalUrl());
+
+        if (recipes.isEmpty()) {
+            if (metadata.isEmpty()) {
+                discardRemoteCopy(entry);
+                finish(entry, UploadOutboxEntry.Status.CANCELLED);
+                return true;
+            }
+            if (entry.getCreatedAt() != null
+                    && entry.getCreatedAt().plusSeconds(swapTimeoutSeconds).isBefore(LocalDateTime.now())) {
+                discardRemoteCopy(entry);
+                entry.setLastError("Recette jamais enregistrée avec l'URL provisoire après " + swapTimeoutSeconds + " s");
+                finish(entry, UploadOutboxEntry.Status.FAILED);
+                System.err.println("❌ Remplacement abandonné (#" + entry.getId() + "): " + entry.getLastError());
+                return true;
+            }
+            entry.setNextAttemptAt(LocalDateTime.now().plusNanos(pollIntervalMs * 1_000_000));
+            outboxRepository.save(entry);
+            return false;
+        }
+
+        for (Recipe recipe : recipes) {
+            recipe.setPdfUrl(entry.getRemoteUrl());
+            if (entry.getRemoteId() != null) {
+                recipe.setExternalId(entry.getRemoteId());
+            }
+        }
+        recipeRepository.saveAll(recipes);
+        for (PdfMetadata pdf : metadata) {
+            pdf.setS3Url(entry.getRemoteUrl());
+        }
+        pdfMetadataRepository.saveAll(metadata);
+
+        finish(entry, UploadOutboxEntry.Status.DONE);
+        System.out.println("✅ URL distante en place pour " + recipes.size() + " recette(s): " + entry.getRemoteUrl());
+        return true;
+    }
+
+    private void discardRemoteCopy(UploadOutboxEntry entry) {
+        if (entry.getRemoteUrl() != null) {
+            storageTombstoneService.enqueue(List.of(entry.getRemoteId() != null
+                    ? entry.getRemoteUrl() + "||" + entry.getRemoteId()
+                    : entry.getRemoteUrl()));
+        }
+    }
+
+    public void cancel(UploadOutboxEntry entry) {
+        finish(entry, UploadOutboxEntry.Status.CANCELLED);
+    }
+
+    /**
+     * Échec d'upload : nouvelle tentative avec un délai exponentiel, abandon après {@code storage.outbox.max-attempts}
+     */
+    public void recordFailure(UploadOutboxEntry entry, String error) {
+        entry.setAttempts(entry.getAttempts() + 1);
+        entry.setLastError(error != null && error.length() > 1000 ? error.substring(0, 1000) : error);
+        if (entry.getAttempts() >= maxAttempts) {
+            entry.setStatus(UploadOutboxEntry.Status.FAILED);
+            entry.setCompletedAt(LocalDateTime.now());
+            System.err.println("❌ Upload distant abandonné (#" + entry.getId() + ") après " + entry.getAttempts()
+                    + " tentatives, le PDF reste local: " + error);
+        } else {
+            long delay = Math.min(retryMaxDelaySeconds, retryBaseDelaySeconds << Math.min(entry.getAttempts() - 1, 20));
+            entry.setNextAttemptAt(LocalDateTime.now().plusSeconds(delay));
+            System.err.println("⚠️ Upload distant #" + entry.getId() + " en échec (" + error + "), nouvel essai dans " + delay + " s");
+        }
+        outboxRepository.save(entry);
+    }
+
+    private void finish(UploadOutboxEntry entry, UploadOutboxEntry.Status status) {
+        entry.setStatus(status);
+        entry.setCompletedAt(LocalDateTime.now());
+        outboxRepository.save(entry);
+    }
+
+    public Map<String, String> readTags(UploadOutboxEntry entry) {
+        if (entry.getTags() == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(entry.getTags(), new TypeReference<Map<String, String>>() {});
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private String writeTags(Map<String, String> tags) {
+        if (tags == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(tags);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize upload tags", e);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        for (UploadOutboxEntry.Status status : UploadOutboxEntry.Status.values()) {
+            stats.put(status.name().toLowerCase(), outboxRepository.countByStatus(status));
+        }
+        return stats;
+    }
+}
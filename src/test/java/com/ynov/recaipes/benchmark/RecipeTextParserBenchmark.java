@@ -0,0 +1,60 @@
+package com.ynov.recaipes.benchmark;
+
+import com.ynov.recaipes.dto.ParsedRecipe;
+import com.ynov.recaipes.service.LegacyRecipeTextParser;
+import com.ynov.recaipes.service.RecipeTextParser;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare le parseur en une passe à l'ancienne implémentation par expressions régulières.
+ * Lancement : mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java
+ *   "-Dexec.args=-cp %classpath com.ynov.recaipes.benchmark.RecipeTextParserBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecipeTextParserBenchmark {
+
+    @Param({"short", "long"})
+    private String size;
+
+    private String text;
+
+    @Setup
+    public void setUp() {
+        StringBuilder ingredients = new StringBuilder();
+        StringBuilder steps = new StringBuilder();
+        int lines = "long".equals(size) ? 2_000 : 6;
+        for (int i = 1; i <= lines; i++) {
+            ingredients.append("- ").append(i * 10).append(" g d'ingrédient numéro ").append(i).append('\n');
+            steps.append(i).append(". Mélanger délicatement puis laisser reposer ").append(i).append(" minutes.\n");
+        }
+        text = "\uFEFF## Titre : Pizza Margherita\n\n## Ingrédients\n" + ingredients
+                + "\n## Instructions\n" + steps
+                + "\n## Description\nUne pizza napolitaine simple et savoureuse.";
+    }
+
+    @Benchmark
+    public ParsedRecipe singlePass() {
+        return RecipeTextParser.parse(text);
+    }
+
+    @Benchmark
+    public ParsedRecipe legacyRegex() {
+        return LegacyRecipeTextParser.parse(text);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RecipeTextParserBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
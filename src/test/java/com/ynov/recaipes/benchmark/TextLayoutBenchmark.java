@@ -0,0 +1,66 @@
+package com.ynov.recaipes.benchmark;
+
+import com.ynov.recaipes.service.LegacyPdfLineBreaker;
+import com.ynov.recaipes.service.TextLayout;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare le découpage en une passe ({@link TextLayout}) à l'ancien découpage de PdfService.drawMultilineText
+ * sur de longues sections d'ingrédients et d'instructions.
+ * Lancement : mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java
+ *   "-Dexec.args=-cp %classpath com.ynov.recaipes.benchmark.TextLayoutBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextLayoutBenchmark {
+
+    private static final float TEXT_SIZE = 12;
+    private static final float TEXT_WIDTH = 495;
+
+    @Param({"short", "long"})
+    private String size;
+
+    private String text;
+    private TextLayout layout;
+
+    @Setup
+    public void setUp() {
+        StringBuilder section = new StringBuilder();
+        int lines = "long".equals(size) ? 200 : 6;
+        for (int i = 1; i <= lines; i++) {
+            section.append(i).append(". Mélanger délicatement la farine, le beurre pommade et les ").append(i * 10)
+                    .append(" g de sucre, puis incorporer les œufs un à un en fouettant jusqu'à obtenir une pâte")
+                    .append(" lisse et homogène ; laisser reposer ").append(i).append(" minutes au frais avant de l'étaler.\n");
+        }
+        text = section.toString();
+        layout = TextLayout.of(PDType1Font.HELVETICA);
+    }
+
+    @Benchmark
+    public List<String> singlePass() throws IOException {
+        return layout.wrap(text, TEXT_SIZE, TEXT_WIDTH);
+    }
+
+    @Benchmark
+    public List<String> legacyPerWord() throws IOException {
+        return LegacyPdfLineBreaker.wrap(PDType1Font.HELVETICA, TEXT_SIZE, TEXT_WIDTH, text);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TextLayoutBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,107 @@
+package com.ynov.recaipes.config;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Charge simulée : chaque génération reste bloquée sur un appel distant (latch) comme pendant l'attente d'OpenAI.
+ * On mesure combien de générations une instance garde réellement en cours selon le type de threads.
+ */
+class ExecutorLoadTest {
+
+    private static final int SUBMISSIONS = 2_000;
+
+    @Test
+    void platformPoolHoldsOnlyItsThreadCountInFlight() throws Exception {
+        ThreadPoolTaskExecutor executor = ExecutorConfig.boundedExecutor("load-platform-", 8, 100);
+        executor.initialize();
+        try {
+            LoadResult result = simulate(executor);
+            System.out.println("🧵 Threads plateforme (8 threads, file 100) : " + result);
+
+            assertEquals(8, result.peakInFlight);
+            assertEquals(108, result.accepted);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @EnabledForJreRange(min = JRE.JAVA_21)
+    void virtualThreadsHoldUpToTheInFlightLimit() throws Exception {
+        SimpleAsyncTaskExecutor executor = ExecutorConfig.virtualExecutor("load-virtual-", 1_000);
+        try {
+            LoadResult result = simulate(executor);
+            System.out.println("🧵 Threads virtuels (limite 1000) : " + result);
+
+            assertEquals(1_000, result.peakInFlight);
+            assertEquals(1_000, result.accepted);
+        } finally {
+            executor.close();
+        }
+    }
+
+    private static LoadResult simulate(AsyncTaskExecutor executor) throws InterruptedException {
+        CountDownLatch remoteCall = new CountDownLatch(1);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        AtomicInteger finished = new AtomicInteger();
+        int accepted = 0;
+
+        for (int i = 0; i < SUBMISSIONS; i++) {
+            try {
+                executor.execute(() -> {
+                    peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                    try {
+                        remoteCall.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        inFlight.decrementAndGet();
+                        finished.incrementAndGet();
+                    }
+                });
+                accepted++;
+            } catch (RejectedExecutionException e) {
+                // file pleine ou limite atteinte : le client reçoit un 503
+            }
+        }
+
+        // Laisse les tâches acceptées démarrer puis libère les "appels distants"
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (inFlight.get() < Math.min(accepted, expectedRunning(executor, accepted)) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        int peakInFlight = peak.get();
+        remoteCall.countDown();
+
+        while (finished.get() < accepted && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(finished.get() == accepted, "Toutes les générations acceptées doivent se terminer");
+        return new LoadResult(accepted, peakInFlight);
+    }
+
+    private static int expectedRunning(AsyncTaskExecutor executor, int accepted) {
+        return executor instanceof ThreadPoolTaskExecutor pool ? pool.getMaxPoolSize() : accepted;
+    }
+
+    private record LoadResult(int accepted, int peakInFlight) {
+        @Override
+        public String toString() {
+            return accepted + "/" + SUBMISSIONS + " acceptées, " + peakInFlight + " en cours simultanément";
+        }
+    }
+}
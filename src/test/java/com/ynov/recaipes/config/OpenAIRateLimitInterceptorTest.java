@@ -0,0 +1,50 @@
+package com.ynov.recaipes.config;
+
+import com.ynov.recaipes.service.OpenAIRateLimiter;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OpenAIRateLimitInterceptorTest {
+
+    private final OpenAIRateLimiter rateLimiter = mock(OpenAIRateLimiter.class);
+    private final OpenAIRateLimitInterceptor interceptor =
+            new OpenAIRateLimitInterceptor(rateLimiter, OpenAIRateLimiter.Api.CHAT, 1200);
+
+    @Test
+    void reservesTheRequestMaxTokensWhenPresent() throws Exception {
+        byte[] body = "{\"model\":\"gpt-4\",\"max_tokens\": 6000}".getBytes(StandardCharsets.UTF_8);
+
+        interceptor.intercept(mock(HttpRequest.class), body, okExecution());
+
+        verify(rateLimiter).acquire(OpenAIRateLimiter.Api.CHAT, body.length / 4 + 6000);
+    }
+
+    @Test
+    void fallsBackToTheFixedEstimateWithoutMaxTokens() throws Exception {
+        byte[] body = "{\"model\":\"gpt-4\"}".getBytes(StandardCharsets.UTF_8);
+
+        interceptor.intercept(mock(HttpRequest.class), body, okExecution());
+
+        verify(rateLimiter).acquire(OpenAIRateLimiter.Api.CHAT, body.length / 4 + 1200);
+    }
+
+    private static ClientHttpRequestExecution okExecution() throws Exception {
+        ClientHttpResponse response = mock(ClientHttpResponse.class);
+        when(response.getStatusCode()).thenReturn(HttpStatus.OK);
+        when(response.getHeaders()).thenReturn(new HttpHeaders());
+        ClientHttpRequestExecution execution = mock(ClientHttpRequestExecution.class);
+        when(execution.execute(any(), any())).thenReturn(response);
+        return execution;
+    }
+}
@@ -0,0 +1,77 @@
+package com.ynov.recaipes.controller;
+
+import com.ynov.recaipes.model.Recipe;
+import com.ynov.recaipes.service.PdfDownloadService;
+import com.ynov.recaipes.service.RecipeService;
+import com.ynov.recaipes.service.StorageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RecipePdfControllerTest {
+
+    private static final String HASH = "ab".repeat(32);
+
+    @TempDir
+    Path directory;
+
+    private final RecipeService recipeService = mock(RecipeService.class);
+    private final PdfDownloadService pdfDownloadService = mock(PdfDownloadService.class);
+    private final StorageService storageService = mock(StorageService.class);
+    private final RecipePdfController controller = new RecipePdfController(recipeService, pdfDownloadService, storageService);
+
+    @BeforeEach
+    void localPdf() throws Exception {
+        Path file = Files.write(directory.resolve("recipe_1.pdf"), "0123456789".getBytes());
+        Recipe recipe = new Recipe();
+        recipe.setId(1L);
+        when(recipeService.getRecipeById(1L)).thenReturn(recipe);
+        when(pdfDownloadService.findLocalPdf(any())).thenReturn(
+                new PdfDownloadService.LocalPdf(file, "recipe_1.pdf", 10, HASH));
+    }
+
+    @Test
+    void servesRequestedRangeWithStrongEtag() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/recipes/1/pdf");
+        request.addHeader("Range", "bytes=2-5");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        controller.downloadPdf(1L, request, response);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 2-5/10", response.getHeader("Content-Range"));
+        assertEquals("\"" + HASH + "\"", response.getHeader("ETag"));
+        assertArrayEquals("2345".getBytes(), response.getContentAsByteArray());
+    }
+
+    @Test
+    void answersNotModifiedWhenEtagMatches() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/recipes/1/pdf");
+        request.addHeader("If-None-Match", "\"" + HASH + "\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        controller.downloadPdf(1L, request, response);
+
+        assertEquals(304, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void parsesSuffixAndRejectsOutOfBoundsRanges() {
+        assertArrayEquals(new long[]{7, 9}, RecipePdfController.parseRange("bytes=-3", 10));
+        assertArrayEquals(new long[]{4, 9}, RecipePdfController.parseRange("bytes=4-", 10));
+        assertEquals(null, RecipePdfController.parseRange("bytes=10-12", 10));
+        assertEquals(0, RecipePdfController.parseRange("bytes=0-1,4-5", 10).length);
+    }
+}
@@ -0,0 +1,106 @@
+package com.ynov.recaipes.service;
+
+import com.ynov.recaipes.dto.ParsedRecipe;
+import com.ynov.recaipes.dto.RecipeRequest;
+import com.ynov.recaipes.model.Recipe;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BatchRecipeGenerationServiceTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(16);
+
+    @Test
+    void runsItemsConcurrentlyUpToTheLimitAndKeepsBatchOrder() {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        RecipeService recipeService = mock(RecipeService.class);
+        when(recipeService.generateRecipe(any(), any())).thenAnswer(invocation -> {
+            RecipeRequest request = invocation.getArgument(0);
+            peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            // Les premières recettes sont les plus lentes : elles finissent après les suivantes
+            Thread.sleep(200 - Integer.parseInt(request.getDishName()) * 20L);
+            inFlight.decrementAndGet();
+            Recipe recipe = new Recipe();
+            recipe.setTitle(request.getDishName());
+            return recipe;
+        });
+
+        List<Recipe> recipes = service(recipeService, 3).generateRecipeBatch(batch(8));
+
+        assertEquals(List.of("0", "1", "2", "3", "4", "5", "6", "7"), recipes.stream().map(Recipe::getTitle).toList());
+        assertEquals(3, peak.get());
+        executor.shutdown();
+    }
+
+    @Test
+    void stopsSubmittingAfterAFailure() {
+        AtomicInteger calls = new AtomicInteger();
+        RecipeService recipeService = mock(RecipeService.class);
+        when(recipeService.generateRecipe(any(), any())).thenAnswer(invocation -> {
+            calls.incrementAndGet();
+            throw new IllegalStateException("OpenAI indisponible");
+        });
+
+        assertThrows(RuntimeException.class, () -> service(recipeService, 1).generateRecipeBatch(batch(5)));
+        assertEquals(1, calls.get());
+        executor.shutdown();
+    }
+
+    @Test
+    void menuTextsComeFromOneCompletionInBatchOrder() {
+        OpenAIService openAIService = mock(OpenAIService.class);
+        when(openAIService.generateRecipeCollection(any())).thenReturn(Arrays.asList(
+                new ParsedRecipe("Velouté", "", "ingrédients entrée", "étapes entrée"),
+                null,
+                new ParsedRecipe("Tarte Tatin", "", "ingrédients dessert", "étapes dessert")));
+        RecipeService recipeService = mock(RecipeService.class);
+        when(recipeService.generateRecipe(any(), any())).thenAnswer(invocation -> {
+            ParsedRecipe text = invocation.getArgument(1);
+            Recipe recipe = new Recipe();
+            recipe.setTitle(text != null ? text.getTitle() : "dédiée");
+            return recipe;
+        });
+        BatchRecipeGenerationService service = new BatchRecipeGenerationService(recipeService, openAIService, executor);
+        ReflectionTestUtils.setField(service, "batchConcurrency", 3);
+        ReflectionTestUtils.setField(service, "singleCompletionEnabled", true);
+
+        List<Recipe> recipes = service.generateCompleteMenu(null, "chef", "français");
+
+        // Le modèle a omis le plat principal : lui seul a sa propre génération, les autres gardent leur texte
+        assertEquals(List.of("Velouté", "dédiée", "Tarte Tatin"), recipes.stream().map(Recipe::getTitle).toList());
+        verify(openAIService, times(1)).generateRecipeCollection(any());
+        executor.shutdown();
+    }
+
+    private BatchRecipeGenerationService service(RecipeService recipeService, int concurrency) {
+        BatchRecipeGenerationService service = new BatchRecipeGenerationService(recipeService, mock(OpenAIService.class), executor);
+        ReflectionTestUtils.setField(service, "batchConcurrency", concurrency);
+        return service;
+    }
+
+    private static BatchRecipeGenerationService.BatchGenerationRequest batch(int size) {
+        BatchRecipeGenerationService.BatchGenerationRequest request = new BatchRecipeGenerationService.BatchGenerationRequest();
+        request.setRecipeRequests(IntStream.range(0, size)
+                .mapToObj(i -> new RecipeRequest(String.valueOf(i), "chef"))
+                .toList());
+        request.setBatchType("test");
+        request.setBatchId(1L);
+        return request;
+    }
+}
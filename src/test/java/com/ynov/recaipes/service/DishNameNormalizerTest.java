@@ -0,0 +1,26 @@
+package com.ynov.recaipes.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class DishNameNormalizerTest {
+
+    @Test
+    void ignoresCaseAccentsPunctuationAndArticles() {
+        assertEquals("pizza margherita", DishNameNormalizer.normalize("La  Pizza, Margherita !"));
+        assertEquals("creme brulee", DishNameNormalizer.normalize("Recette de la crème brûlée"));
+        assertEquals("pates beurre", DishNameNormalizer.normalize("Pâtes au beurre"));
+    }
+
+    @Test
+    void keepsPrepositionsThatChangeTheDish() {
+        String without = DishNameNormalizer.normalize("pâtes sans beurre");
+        String with = DishNameNormalizer.normalize("pâtes avec beurre");
+
+        assertNotEquals(without, with);
+        assertNotEquals(DishNameNormalizer.normalize("pâtes au beurre"), without);
+        assertNotEquals(DishNameNormalizer.normalize("gâteau pour diabétiques"), DishNameNormalizer.normalize("gâteau diabétiques"));
+    }
+}
@@ -0,0 +1,57 @@
+package com.ynov.recaipes.service;
+
+import org.apache.pdfbox.pdmodel.font.PDFont;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ancien découpage de PdfService.drawMultilineText (largeur de la ligne recalculée à chaque mot),
+ * conservé comme référence pour les tests d'équivalence et le benchmark.
+ */
+public final class LegacyPdfLineBreaker {
+
+    private LegacyPdfLineBreaker() {
+    }
+
+    public static List<String> wrap(PDFont font, float fontSize, float maxWidth, String text) throws IOException {
+        List<String> result = new ArrayList<>();
+        text = text.replace("\r\n", "\n").replace("\r", "\n");
+        String[] lines = text.split("\n");
+
+        for (String line : lines) {
+            float lineWidth = font.getStringWidth(line) / 1000 * fontSize;
+            if (lineWidth <= maxWidth) {
+                result.add(line);
+            } else {
+                String[] words = line.split(" ");
+                StringBuilder currentLine = new StringBuilder();
+
+                for (String word : words) {
+                    String testLine = currentLine.toString() + (currentLine.length() > 0 ? " " : "") + word;
+                    float testWidth = font.getStringWidth(testLine) / 1000 * fontSize;
+
+                    if (testWidth <= maxWidth) {
+                        if (currentLine.length() > 0) {
+                            currentLine.append(" ");
+                        }
+                        currentLine.append(word);
+                    } else {
+                        if (currentLine.length() > 0) {
+                            result.add(currentLine.toString());
+                            currentLine = new StringBuilder(word);
+                        } else {
+                            result.add(word);
+                        }
+                    }
+                }
+
+                if (currentLine.length() > 0) {
+                    result.add(currentLine.toString());
+                }
+            }
+        }
+        return result;
+    }
+}
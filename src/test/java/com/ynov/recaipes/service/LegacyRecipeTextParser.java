@@ -0,0 +1,92 @@
+package com.ynov.recaipes.service;
+
+import com.ynov.recaipes.dto.ParsedRecipe;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Ancienne implémentation à base d'expressions régulières (RecipeService.parseRecipeText),
+ * conservée comme référence pour les tests d'équivalence et le benchmark.
+ */
+public final class LegacyRecipeTextParser {
+
+    private LegacyRecipeTextParser() {
+    }
+
+    public static ParsedRecipe parse(String recipeText) {
+        if (recipeText != null && !recipeText.isEmpty() && recipeText.startsWith("\uFEFF")) {
+            recipeText = recipeText.substring(1);
+        }
+
+        String title = extractTitle(recipeText);
+        String description = extractSection(recipeText, "DESCRIPTION", "INGREDIENTS");
+        String ingredients = extractSection(recipeText, "INGR[EÉ]DIENTS?", "INSTRUCTIONS|PREPARATION|ÉTAPES");
+        String instructions = extractSection(recipeText, "INSTRUCTIONS?|PREPARATION|ÉTAPES", null);
+
+        return new ParsedRecipe(cleanTitle(title), description.trim(), ingredients.trim(), instructions.trim());
+    }
+
+    private static String extractTitle(String recipeText) {
+        if (recipeText == null || recipeText.trim().isEmpty()) {
+            return "Recipe Without Name";
+        }
+        String[] titlePatterns = {
+                "(?i)^\\s*TITRE\\s*:?\\s*(.+?)$",
+                "(?i)^\\s*RECIPE\\s*:?\\s*(.+?)$",
+                "(?i)^\\s*NOM\\s*:?\\s*(.+?)$",
+                "(?i)^\\s*#\\s*(.+?)$",
+                "(?i)^\\s*\\*\\*(.+?)\\*\\*",
+                "(?i)^\\s*(.+?)(?=\\n|DESCRIPTION|INGR)"
+        };
+        for (String patternStr : titlePatterns) {
+            Pattern pattern = Pattern.compile(patternStr, Pattern.MULTILINE);
+            Matcher matcher = pattern.matcher(recipeText);
+            if (matcher.find()) {
+                String candidateTitle = matcher.group(1).trim();
+                if (!candidateTitle.isEmpty() && candidateTitle.length() <= 200 &&
+                        !candidateTitle.toLowerCase().contains("ingredient") &&
+                        !candidateTitle.toLowerCase().contains("instruction") &&
+                        !candidateTitle.toLowerCase().contains("description")) {
+                    return cleanTitle(candidateTitle);
+                }
+            }
+        }
+        return "Delicious Recipe";
+    }
+
+    private static String cleanTitle(String title) {
+        if (title == null) {
+            return "Recipe Without Name";
+        }
+        title = title.trim()
+                .replaceAll("(?i)^(TITLE|TITRE|RECIPE|RECETTE|NOM)\\s*:?\\s*", "")
+                .replaceAll("^[\\*#\\-\\s]+", "")
+                .replaceAll("[\\*#\\-\\s]+$", "")
+                .replaceAll("\\s+", " ");
+        if (!title.isEmpty()) {
+            title = title.substring(0, 1).toUpperCase() + (title.length() > 1 ? title.substring(1) : "");
+        }
+        return title.isEmpty() ? "Recipe Without Name" : title;
+    }
+
+    private static String extractSection(String text, String startPattern, String endPattern) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        String regex;
+        if (endPattern != null) {
+            regex = "(?i)(" + startPattern + ")\\s*:?\\s*\\n?(.*?)(?=" + endPattern + "|$)";
+        } else {
+            regex = "(?i)(" + startPattern + ")\\s*:?\\s*\\n?(.*)";
+        }
+        Matcher matcher = Pattern.compile(regex, Pattern.DOTALL).matcher(text);
+        if (matcher.find()) {
+            String content = matcher.group(2);
+            if (content != null) {
+                return content.trim();
+            }
+        }
+        return "";
+    }
+}
@@ -0,0 +1,76 @@
+package com.ynov.recaipes.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocalStorageProviderTest {
+
+    @TempDir
+    Path directory;
+
+    private final LocalStorageProvider provider = new LocalStorageProvider();
+
+    @AfterEach
+    void shutdown() {
+        provider.shutdown();
+    }
+
+    @BeforeEach
+    void contentAddressed() {
+        ReflectionTestUtils.setField(provider, "localStoragePath", directory.toString());
+        ReflectionTestUtils.setField(provider, "contentAddressed", true);
+        ReflectionTestUtils.setField(provider, "fsyncEnabled", true);
+        ReflectionTestUtils.setField(provider, "fsyncMaxBatch", 8);
+        ReflectionTestUtils.setField(provider, "fsyncMaxDelayMs", 1L);
+        provider.init();
+    }
+
+    @Test
+    void storesIdenticalContentOnceUnderItsHash() throws Exception {
+        byte[] content = "%PDF-1.4 recette".getBytes();
+        Path first = Files.write(directory.resolve("recipe_1.pdf"), content);
+        Path second = Files.write(directory.resolve("recipe_2.pdf"), content);
+
+        String firstUrl = provider.uploadFile(first.toFile(), "application/pdf");
+        String secondUrl = provider.uploadFile(second.toFile(), "application/pdf");
+
+        assertEquals(firstUrl, secondUrl);
+        String hash = LocalStorageProvider.sha256(first);
+        Path object = Paths.get(firstUrl.substring(7).split("\\|\\|")[0]);
+        assertEquals(provider.objectPath(hash, ".pdf").toAbsolutePath(), object);
+        assertEquals(hash.substring(2, 4), object.getParent().getFileName().toString());
+        assertArrayEquals(content, Files.readAllBytes(object));
+        assertTrue(Files.isSameFile(first, object), "l'objet doit être un lien physique vers la source");
+        assertEquals(1L, provider.getStats().get("deduplicated"));
+    }
+
+    @Test
+    void writesInMemoryContentWithoutTempFileLeftBehind() throws Exception {
+        byte[] content = "%PDF-1.4 en mémoire".getBytes();
+
+        String url = provider.uploadBytes(content, "recipe_3.pdf", "application/pdf", null);
+
+        Path object = Paths.get(url.substring(7).split("\\|\\|")[0]);
+        assertArrayEquals(content, Files.readAllBytes(object));
+        try (Stream<Path> siblings = Files.list(object.getParent())) {
+            assertEquals(1, siblings.count());
+        }
+        assertEquals(url, provider.uploadBytes(content, "recipe_4.pdf", "application/pdf", null));
+
+        // un objet déjà absent compte comme supprimé (pas de nouvelles tentatives du ramasse-miettes)
+        assertTrue(provider.deleteFile(url));
+        assertTrue(provider.deleteFile(url));
+    }
+}
@@ -0,0 +1,49 @@
+package com.ynov.recaipes.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OpenAIRateLimiterTest {
+
+    @Test
+    void bucketServesBurstThenSpacesRequestsAtTheConfiguredRate() {
+        OpenAIRateLimiter.TokenBucket bucket = new OpenAIRateLimiter.TokenBucket(60);
+        long now = System.nanoTime();
+        for (int i = 0; i < 60; i++) {
+            assertEquals(0, bucket.reserve(1, now));
+        }
+        long wait = bucket.reserve(1, now);
+        assertTrue(Math.abs(wait - TimeUnit.SECONDS.toNanos(1)) < TimeUnit.MILLISECONDS.toNanos(50), "wait=" + wait);
+    }
+
+    @Test
+    void responseHeadersLowerTheLocalEstimate() {
+        OpenAIRateLimiter limiter = new OpenAIRateLimiter(500, 10_000, 50, 1);
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("x-ratelimit-limit-tokens", "10000");
+        headers.set("x-ratelimit-remaining-tokens", "0");
+        limiter.onResponse(OpenAIRateLimiter.Api.CHAT, 200, headers);
+
+        // 10 000 tokens/min : 2 000 tokens demandent ~12 s, au-delà de l'attente maximale (1 s)
+        assertThrows(IllegalStateException.class, () -> limiter.acquire(OpenAIRateLimiter.Api.CHAT, 2_000));
+        assertEquals(1L, ((Map<?, ?>) limiter.getStats().get("chat")).get("rejected"));
+    }
+
+    @Test
+    void retryAfterPausesTheWholeApiFamily() {
+        OpenAIRateLimiter limiter = new OpenAIRateLimiter(500, 10_000, 50, 1);
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "20");
+        limiter.onResponse(OpenAIRateLimiter.Api.IMAGES, 429, headers);
+
+        assertThrows(IllegalStateException.class, () -> limiter.acquire(OpenAIRateLimiter.Api.IMAGES, 0));
+        limiter.acquire(OpenAIRateLimiter.Api.CHAT, 10);
+    }
+}
@@ -0,0 +1,87 @@
+package com.ynov.recaipes.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ynov.recaipes.dto.ParsedRecipe;
+import com.ynov.recaipes.dto.StructuredRecipe;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OpenAIServiceStructuredOutputTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void readsFirstChoiceContentAndMapsToParsedRecipe() throws IOException {
+        String response = "{\"id\":\"chatcmpl-1\",\"object\":\"chat.completion\",\"meta\":{\"nested\":[1,{\"a\":2}]},"
+                + "\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\",\"content\":"
+                + "\"{\\\"title\\\":\\\"Pizza Margherita\\\",\\\"description\\\":\\\"Un classique.\\\","
+                + "\\\"ingredients\\\":[\\\"250 g de farine\\\",\\\"1 mozzarella\\\"],"
+                + "\\\"steps\\\":[\\\"Préparer la pâte.\\\",\\\"Cuire 12 minutes.\\\"]}\",\"refusal\":null},"
+                + "\"finish_reason\":\"stop\"}],\"usage\":{\"total_tokens\":42}}";
+
+        String content;
+        try (JsonParser parser = objectMapper.getFactory().createParser(response)) {
+            content = OpenAIService.readMessageContent(parser);
+        }
+        ParsedRecipe parsed = objectMapper.readValue(content, StructuredRecipe.class).toParsedRecipe();
+
+        assertEquals("Pizza Margherita", parsed.getTitle());
+        assertEquals("Un classique.", parsed.getDescription());
+        assertEquals("- 250 g de farine\n- 1 mozzarella", parsed.getIngredients());
+        assertEquals("1. Préparer la pâte.\n2. Cuire 12 minutes.", parsed.getInstructions());
+    }
+
+    @Test
+    void refusalIsReportedAsIncompleteResponse() throws IOException {
+        String response = "{\"choices\":[{\"message\":{\"role\":\"assistant\",\"content\":null,"
+                + "\"refusal\":\"Je ne peux pas aider.\"}}]}";
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(response)) {
+            assertThrows(IncompleteRecipeException.class, () -> OpenAIService.readMessageContent(parser));
+        }
+    }
+
+    @Test
+    void splitsMultiRecipeCompletionIgnoringPreamble() {
+        String content = "Voici votre menu !\n\n=== RECETTE 1 ===\nTITRE: Salade niçoise\nINGREDIENTS:\n- thon\nINSTRUCTIONS:\n1. Mélanger.\n"
+                + "=== RECETTE 2 ===\nTITRE: Tarte Tatin\nINGREDIENTS:\n- pommes\nINSTRUCTIONS:\n1. Caraméliser.\n";
+
+        List<ParsedRecipe> recipes = OpenAIService.splitRecipes(content, 2);
+
+        assertEquals(List.of("Salade niçoise", "Tarte Tatin"), recipes.stream().map(ParsedRecipe::getTitle).toList());
+        assertEquals("- pommes", recipes.get(1).getIngredients());
+    }
+
+    @Test
+    void assignsRecipesByDishNumberWhenTheModelSkipsOne() {
+        // Plat 2 omis, plats 3 et 1 dans le désordre
+        String content = "=== RECETTE 3 ===\nTITRE: Tarte Tatin\nINGREDIENTS:\n- pommes\nINSTRUCTIONS:\n1. Caraméliser.\n"
+                + "=== RECETTE 1 ===\nTITRE: Salade niçoise\nINGREDIENTS:\n- thon\nINSTRUCTIONS:\n1. Mélanger.\n";
+
+        List<ParsedRecipe> recipes = OpenAIService.splitRecipes(content, 3);
+
+        assertEquals(3, recipes.size());
+        assertEquals("Salade niçoise", recipes.get(0).getTitle());
+        assertNull(recipes.get(1));
+        assertEquals("Tarte Tatin", recipes.get(2).getTitle());
+    }
+
+    @Test
+    void leavesDishesWithoutTextWhenNumbersAreMissingOrDuplicated() {
+        String content = "=== RECETTE ===\nTITRE: Velouté\nINGREDIENTS:\n- potiron\nINSTRUCTIONS:\n1. Mixer.\n"
+                + "=== RECETTE 2 ===\nTITRE: Blanquette\nINGREDIENTS:\n- veau\nINSTRUCTIONS:\n1. Mijoter.\n"
+                + "=== RECETTE 2 ===\nTITRE: Fondant\nINGREDIENTS:\n- chocolat\nINSTRUCTIONS:\n1. Cuire.\n";
+
+        List<ParsedRecipe> recipes = OpenAIService.splitRecipes(content, 3);
+
+        assertEquals(Arrays.asList(null, null, null), recipes);
+    }
+}
@@ -0,0 +1,129 @@
+package com.ynov.recaipes.service;
+
+import com.ynov.recaipes.model.Recipe;
+import com.ynov.recaipes.repository.PdfMetadataRepository;
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdfparser.PDFStreamParser;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PdfServiceTest {
+
+    @TempDir
+    Path directory;
+
+    private final PdfMetadataRepository pdfMetadataRepository = mock(PdfMetadataRepository.class);
+    private final StorageService storageService = mock(StorageService.class);
+    private final UploadOutboxService uploadOutboxService = mock(UploadOutboxService.class);
+    private final PdfFonts pdfFonts = new PdfFonts();
+    private final PdfService pdfService = new PdfService(pdfMetadataRepository, storageService, uploadOutboxService, pdfFonts);
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ReflectionTestUtils.setField(pdfFonts, "regularFontResource", new ClassPathResource("fonts/DejaVuSans.ttf"));
+        ReflectionTestUtils.setField(pdfFonts, "boldFontResource", new ClassPathResource("fonts/DejaVuSans-Bold.ttf"));
+        pdfFonts.init();
+        ReflectionTestUtils.setField(pdfService, "localStoragePath", directory.toString());
+        when(storageService.uploadBytes(any(), anyString(), anyString(), anyMap())).thenReturn("https://bucket/public/file/1||1");
+        when(pdfMetadataRepository.save(any())).thenAnswer(call -> call.getArgument(0));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        pdfFonts.close();
+    }
+
+    @Test
+    void rendersOneCompressedTextObjectPerSection() throws Exception {
+        Recipe recipe = new Recipe();
+        recipe.setId(1L);
+        recipe.setTitle("Tarte aux pommes");
+        recipe.setDescription("Une tarte dorée et croustillante.");
+        recipe.setIngredients("- 3 pommes\n- 1 pâte brisée\n- 50 g de sucre");
+        recipe.setInstructions("1. Préchauffer le four.\n2. Garnir la pâte.\n3. Cuire 35 minutes.");
+
+        pdfService.generateAndSavePdf(recipe, null);
+
+        ArgumentCaptor<byte[]> pdf = ArgumentCaptor.forClass(byte[].class);
+        verify(storageService).uploadBytes(pdf.capture(), eq("recipe_1.pdf"), eq("application/pdf"), anyMap());
+        try (PDDocument document = PDDocument.load(pdf.getValue())) {
+            assertEquals(1, document.getNumberOfPages());
+            PDPage page = document.getPage(0);
+            assertEquals(COSName.FLATE_DECODE, page.getContentStreams().next().getCOSObject().getDictionaryObject(COSName.FILTER));
+
+            Map<String, Integer> operators = countOperators(page);
+            assertEquals(4, operators.get("BT"), "un objet texte pour le titre et un par section");
+            assertEquals(4, operators.get("ET"));
+
+            String text = new PDFTextStripper().getText(document);
+            assertTrue(text.contains("Tarte aux pommes"));
+            assertTrue(text.contains("2. Garnir la pâte."));
+        }
+    }
+
+    @Test
+    void embedsFontSubsetAndReplacesMissingGlyphs() throws Exception {
+        Recipe recipe = new Recipe();
+        recipe.setId(1L);
+        recipe.setTitle("Bœuf bourguignon 🍷");
+        recipe.setDescription("Mijoté → fondant, ﬁn et parfumé 😋");
+        recipe.setIngredients("- 1 kg de bœuf\n- 75 cl de vin\t(rouge)\n- 1 c. à s. de 醤油");
+        recipe.setInstructions("1. Saisir la viande.\n2. Mijoter 3 h.");
+
+        pdfService.generateAndSavePdf(recipe, null);
+
+        ArgumentCaptor<byte[]> pdf = ArgumentCaptor.forClass(byte[].class);
+        verify(storageService).uploadBytes(pdf.capture(), eq("recipe_1.pdf"), eq("application/pdf"), anyMap());
+        try (PDDocument document = PDDocument.load(pdf.getValue())) {
+            PDResources resources = document.getPage(0).getResources();
+            for (COSName name : resources.getFontNames()) {
+                PDFont font = resources.getFont(name);
+                assertTrue(font.isEmbedded());
+                assertTrue(font.getName().matches("[A-Z]{6}\\+DejaVuSans.*"), "sous-ensemble : " + font.getName());
+            }
+
+            String text = new PDFTextStripper().getText(document);
+            assertTrue(text.contains("Bœuf bourguignon"));
+            assertTrue(text.contains("Mijoté → fondant, fin et parfumé"));
+            assertTrue(text.contains("vin (rouge)"));
+            assertTrue(text.contains("1 c. à s. de ??"));
+        }
+    }
+
+    private static Map<String, Integer> countOperators(PDPage page) throws Exception {
+        PDFStreamParser parser = new PDFStreamParser(page);
+        parser.parse();
+        Map<String, Integer> counts = new HashMap<>();
+        for (Object token : parser.getTokens()) {
+            if (token instanceof Operator operator) {
+                counts.merge(operator.getName(), 1, Integer::sum);
+            }
+        }
+        return counts;
+    }
+}
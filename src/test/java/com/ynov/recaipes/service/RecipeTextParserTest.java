@@ -0,0 +1,70 @@
+package com.ynov.recaipes.service;
+
+import com.ynov.recaipes.dto.ParsedRecipe;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RecipeTextParserTest {
+
+    static final List<String> CORPUS = List.of(
+            "TITRE: Pizza Margherita\n\nINGREDIENTS:\n- 250 g de farine\n- 1 boule de mozzarella\n- 200 g de sauce tomate\n\n"
+                    + "INSTRUCTIONS:\n1. Préparer la pâte.\n2. Étaler la sauce.\n3. Cuire 12 minutes à 250°C.\n\n"
+                    + "DESCRIPTION:\nUne pizza napolitaine simple et savoureuse.",
+            "\uFEFFTITRE : Coq au vin\nINGRÉDIENTS :\n- 1 coq\n- 75 cl de vin rouge\nÉTAPES :\n1. Mariner le coq une nuit.\n2. Mijoter 3 heures.\n"
+                    + "DESCRIPTION : Un classique bourguignon.",
+            "# Ratatouille provençale\n\n## Ingrédients\n- 2 courgettes\n- 1 aubergine\n- 3 tomates\n\n## Instructions\n"
+                    + "1. Couper les légumes en dés.\n2. Faire revenir chaque légume séparément.\n\n## Description\nLe plat d'été par excellence.",
+            "**Tiramisu**\n\nIngredients:\n- 250 g de mascarpone\n- 3 oeufs\n- 200 g de biscuits\n\nPréparation:\n"
+                    + "1. Monter les blancs en neige.\n2. Tremper les biscuits dans le café.\n\nDescription: Dessert italien.",
+            "Crème brûlée\nINGREDIENTS\n- 50 cl de crème\n- 5 jaunes d'oeufs\n- 100 g de sucre\nPREPARATION\n"
+                    + "1. Chauffer la crème.\n2. Cuire au bain-marie 1 heure à 100°C.\nDESCRIPTION\nOnctueuse et caramélisée.",
+            "Titre : Pad Thaï aux crevettes\r\nIngrédients :\r\n- 200 g de nouilles de riz\r\n- 12 crevettes\r\n"
+                    + "Instructions :\r\n1. Tremper les nouilles.\r\n2. Sauter au wok.\r\nDescription : Street food thaïlandaise.",
+            "Voici votre recette !\n\nTITRE: **Bouillabaisse**\n\nINGREDIENTS (pour 6 personnes):\n- 1,5 kg de poissons de roche\n"
+                    + "- 1 fenouil\n\nINSTRUCTIONS (étapes numérotées):\n1. Préparer le fumet.\n2. Cuire les poissons.\n\nDESCRIPTION:\n"
+                    + "Soupe marseillaise. Ingredients de qualité indispensables.",
+            "Nom: Risotto aux champignons\nDescription: Crémeux et parfumé.\nIngredients:\n- 300 g de riz arborio\n- 250 g de champignons\n"
+                    + "Instructions:\n1. Nacrer le riz.\n2. Ajouter le bouillon louche par louche.",
+            "RECIPE: Sushi maki\nINGREDIENTS:\n- riz à sushi\n- nori\nINSTRUCTION:\n1. Rouler le riz dans la feuille de nori.\n",
+            "TITRE:\nRamen tonkotsu\nINGREDIENTS:\n- os de porc\n- nouilles\nINSTRUCTIONS:\n1. Cuire le bouillon 12 heures.",
+            "Ingrédients seulement sans titre",
+            "",
+            "   \n  ",
+            "TITRE:",
+            "#\n\n**Curry vert**\ningredients: lait de coco, pâte de curry\ninstructions: mijoter 20 minutes et servir"
+    );
+
+    @Test
+    void matchesLegacyParserOnCorpus() {
+        for (String text : CORPUS) {
+            assertSameResult(text);
+        }
+    }
+
+    @Test
+    void matchesLegacyParserOnGeneratedInputs() {
+        String[] fragments = {
+                "TITRE", "Titre :", "titre:", "RECIPE", "Nom", "Nombre", "Recette", "#", "## ", "**", "*", "-", ":", " ", "  ",
+                "\n", "\n\n", "\r\n", "\t", "\uFEFF", "INGREDIENTS", "Ingrédients", "INGRÉDIENTS", "ingredient", "INGR",
+                "INSTRUCTIONS", "Instruction", "PREPARATION", "Préparation", "ÉTAPES", "étapes", "DESCRIPTION", "description",
+                "Pizza", "Crème brûlée", "1. Cuire", "- 200 g de farine", "Étaler", "S", "s"
+        };
+        Random random = new Random(42);
+        for (int n = 0; n < 20_000; n++) {
+            StringBuilder text = new StringBuilder();
+            int parts = random.nextInt(14);
+            for (int p = 0; p < parts; p++) {
+                text.append(fragments[random.nextInt(fragments.length)]);
+            }
+            assertSameResult(text.toString());
+        }
+    }
+
+    private static void assertSameResult(String text) {
+        assertEquals(LegacyRecipeTextParser.parse(text), RecipeTextParser.parse(text), () -> "Input: " + text.replace("\n", "\\n"));
+    }
+}
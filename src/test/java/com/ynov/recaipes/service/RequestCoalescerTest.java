@@ -0,0 +1,52 @@
+package com.ynov.recaipes.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RequestCoalescerTest {
+
+    @Test
+    void errorReleasesWaitingCallersAndTheKey() throws Exception {
+        RequestCoalescer<String> coalescer = new RequestCoalescer<>(60_000);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> coalescer.execute("k", () -> {
+            started.countDown();
+            await(release);
+            throw new StackOverflowError("boom");
+        }));
+        assertEquals(true, started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> follower = CompletableFuture.supplyAsync(() -> coalescer.execute("k", () -> "autre"));
+        // attendre que le second appel soit bien rattaché au premier avant de libérer l'exécution
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!Long.valueOf(1L).equals(coalescer.getStats().get("coalesced")) && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(1L, coalescer.getStats().get("coalesced"));
+        release.countDown();
+
+        // l'appelant en attente reçoit l'erreur au lieu de bloquer indéfiniment
+        Exception leaderError = assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS));
+        assertEquals(StackOverflowError.class, leaderError.getCause().getClass());
+        Exception followerError = assertThrows(Exception.class, () -> follower.get(5, TimeUnit.SECONDS));
+        assertEquals(StackOverflowError.class, followerError.getCause().getClass());
+
+        // la clé est libérée : l'appel suivant exécute à nouveau le travail
+        assertEquals("ok", coalescer.execute("k", () -> "ok"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.ynov.recaipes.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RetryPolicyTest {
+
+    @Test
+    void retriesTransientErrorsUntilSuccess() {
+        RetryPolicy policy = new RetryPolicy(3, 1, 5, new RetryBudget(0.2, 10));
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = policy.execute(() -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE);
+            }
+            return "ok";
+        });
+
+        assertEquals("ok", result);
+        assertEquals(3, calls.get());
+        assertEquals(1L, policy.getStats().get("recovered"));
+    }
+
+    @Test
+    void doesNotRetryClientErrorsOrBeyondBudget() {
+        AtomicInteger calls = new AtomicInteger();
+        RetryPolicy policy = new RetryPolicy(5, 1, 5, new RetryBudget(0.2, 10));
+        assertThrows(HttpClientErrorException.class, () -> policy.execute(() -> {
+            calls.incrementAndGet();
+            throw new HttpClientErrorException(HttpStatus.BAD_REQUEST);
+        }));
+        assertEquals(1, calls.get());
+
+        calls.set(0);
+        RetryPolicy poorPolicy = new RetryPolicy(5, 1, 5, new RetryBudget(0.2, 1));
+        assertThrows(HttpServerErrorException.class, () -> poorPolicy.execute(() -> {
+            calls.incrementAndGet();
+            throw new HttpServerErrorException(HttpStatus.BAD_GATEWAY);
+        }));
+        assertEquals(2, calls.get());
+        assertEquals(1L, poorPolicy.getStats().get("budgetExhausted"));
+    }
+
+    @Test
+    void hedgedRequestWinsWhenFirstIsSlow() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            RequestHedger hedger = new RequestHedger(true, 50, executor, new RetryBudget(0.2, 10));
+            AtomicInteger calls = new AtomicInteger();
+
+            String result = hedger.call(() -> {
+                if (calls.incrementAndGet() == 1) {
+                    sleep(2_000);
+                    return "slow";
+                }
+                return "fast";
+            });
+
+            assertEquals("fast", result);
+            assertEquals(1L, hedger.getStats().get("hedgeWins"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.ynov.recaipes.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class S3StorageProviderTest {
+
+    @Test
+    void handsOutPresignedOrCdnUrlsForPrivateObjects() {
+        S3StorageProvider provider = provider("presigned");
+        String stored = "https://recaipes-bucket.s3.amazonaws.com/recipes/abc-recipe_1.pdf";
+
+        String presigned = provider.toPublicUrl(stored + "||recipes/abc-recipe_1.pdf");
+        assertTrue(presigned.startsWith(stored + "?"), presigned);
+        assertTrue(presigned.contains("X-Amz-Signature="), presigned);
+
+        ReflectionTestUtils.setField(provider, "urlMode", "cdn");
+        assertEquals("https://cdn.example.com/recipes/abc-recipe_1.pdf", provider.toPublicUrl(stored));
+
+        ReflectionTestUtils.setField(provider, "urlMode", "public-read");
+        assertEquals(stored, provider.toPublicUrl(stored));
+
+        // URL d'un autre stockage : inchangée
+        assertEquals("file://./pdfs/recipe_1.pdf", provider.toPublicUrl("file://./pdfs/recipe_1.pdf"));
+        provider.shutdown();
+    }
+
+    private static S3StorageProvider provider(String urlMode) {
+        S3StorageProvider provider = new S3StorageProvider();
+        ReflectionTestUtils.setField(provider, "enabled", true);
+        ReflectionTestUtils.setField(provider, "bucketName", "recaipes-bucket");
+        ReflectionTestUtils.setField(provider, "region", "us-east-1");
+        ReflectionTestUtils.setField(provider, "accessKeyId", "AKIDEXAMPLE");
+        ReflectionTestUtils.setField(provider, "secretAccessKey", "secret");
+        ReflectionTestUtils.setField(provider, "endpoint", "");
+        ReflectionTestUtils.setField(provider, "maxConnections", 1);
+        ReflectionTestUtils.setField(provider, "multipartThresholdMb", 16L);
+        ReflectionTestUtils.setField(provider, "partSizeMb", 8L);
+        ReflectionTestUtils.setField(provider, "uploadThreads", 1);
+        ReflectionTestUtils.setField(provider, "urlMode", urlMode);
+        ReflectionTestUtils.setField(provider, "presignMinutes", 60L);
+        ReflectionTestUtils.setField(provider, "publicUrlPrefix", "https://cdn.example.com/");
+        provider.init();
+        return provider;
+    }
+}
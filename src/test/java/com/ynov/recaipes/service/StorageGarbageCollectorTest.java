@@ -0,0 +1,79 @@
+package com.ynov.recaipes.service;
+
+import com.ynov.recaipes.model.StorageTombstone;
+import com.ynov.recaipes.repository.PdfMetadataRepository;
+import com.ynov.recaipes.repository.RecipeRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StorageGarbageCollectorTest {
+
+    private final StorageTombstoneService tombstoneService = mock(StorageTombstoneService.class);
+    private final StorageService storageService = mock(StorageService.class);
+    private final RecipeRepository recipeRepository = mock(RecipeRepository.class);
+    private final PdfMetadataRepository pdfMetadataRepository = mock(PdfMetadataRepository.class);
+    private final StorageGarbageCollector collector = new StorageGarbageCollector(
+            tombstoneService, storageService, recipeRepository, pdfMetadataRepository, Runnable::run);
+
+    @Test
+    void deletesUnreferencedFilesAndRetriesFailures() {
+        StorageTombstone shared = new StorageTombstone("https://bucket/public/file/shared");
+        StorageTombstone removed = new StorageTombstone("https://bucket/public/file/removed");
+        StorageTombstone failing = new StorageTombstone("https://bucket/public/file/failing");
+        when(tombstoneService.isStillReferenced(shared.getUrl())).thenReturn(true);
+        when(storageService.deleteFile(removed.getUrl())).thenReturn(true);
+        when(storageService.deleteFile(failing.getUrl())).thenThrow(new RuntimeException("bucket down"));
+
+        collector.collectBatch(List.of(shared, removed, failing));
+
+        verify(tombstoneService).markSkipped(shared);
+        verify(storageService, never()).deleteFile(shared.getUrl());
+        verify(tombstoneService).markDone(removed);
+        verify(tombstoneService).recordFailure(failing, "bucket down");
+    }
+
+    @Test
+    void sweepsOnlyOldUnreferencedLocalFiles(@TempDir Path directory) throws Exception {
+        Path referenced = oldFile(directory.resolve("recipe_1.pdf"));
+        Path orphanPdf = oldFile(directory.resolve("recipe_2.pdf"));
+        Path orphanImage = oldFile(directory.resolve("6f1c0e2a.jpg"));
+        Path recent = Files.createFile(directory.resolve("recipe_3.pdf"));
+        when(pdfMetadataRepository.findAllLocalPaths()).thenReturn(List.of(referenced.toString()));
+        ReflectionTestUtils.setField(collector, "enabled", true);
+        ReflectionTestUtils.setField(collector, "orphanSweepEnabled", true);
+        ReflectionTestUtils.setField(collector, "localStoragePath", directory.toString());
+        ReflectionTestUtils.setField(collector, "orphanMinAgeMinutes", 60L);
+
+        collector.sweepOrphans();
+
+        assertTrue(Files.exists(referenced));
+        assertTrue(Files.exists(recent));
+        assertFalse(Files.exists(orphanPdf));
+        assertFalse(Files.exists(orphanImage));
+        verify(storageService, never()).deleteFile(anyString());
+        verify(tombstoneService, never()).markDone(any());
+    }
+
+    private static Path oldFile(Path path) throws Exception {
+        Files.createFile(path);
+        Files.setLastModifiedTime(path, FileTime.from(Instant.now().minus(2, ChronoUnit.HOURS)));
+        return path;
+    }
+}
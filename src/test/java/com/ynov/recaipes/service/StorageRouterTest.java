@@ -0,0 +1,130 @@
+package com.ynov.recaipes.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StorageRouterTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final File file = new File("recipe.pdf");
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void prefersPriorityAndDemotesFailingProvider() {
+        FakeProvider remote = new FakeProvider("remote", 1, 0, true);
+        FakeProvider local = new FakeProvider("local", 10, 0, false);
+        StorageRouter router = router(List.of(local, remote), false);
+
+        assertEquals(List.of(remote, local), router.rank());
+        assertEquals("local-url", router.upload(file, "application/pdf", null));
+        assertEquals(1, remote.uploads);
+
+        // taux d'erreur au-dessus du seuil : le provider distant passe derrière le local
+        assertEquals(List.of(local, remote), router.rank());
+        assertEquals("local-url", router.upload(file, "application/pdf", null));
+        assertEquals(1, remote.uploads);
+    }
+
+    @Test
+    void hedgesSlowUploadAndDeletesLosingCopy() throws Exception {
+        FakeProvider slow = new FakeProvider("slow", 1, 500, false);
+        FakeProvider fast = new FakeProvider("fast", 2, 0, false);
+        StorageRouter router = router(List.of(slow, fast), true);
+
+        assertEquals("fast-url", router.upload(file, "application/pdf", null));
+
+        for (int i = 0; i < 50 && slow.deleted.isEmpty(); i++) {
+            Thread.sleep(50);
+        }
+        assertEquals(List.of("slow-url"), slow.deleted);
+        assertTrue(fast.deleted.isEmpty());
+        assertEquals(1L, router.getStats().get("hedgeWins"));
+    }
+
+    private StorageRouter router(List<StorageProvider> providers, boolean hedge) {
+        StorageRouter router = new StorageRouter(providers, executor);
+        ReflectionTestUtils.setField(router, "alpha", 0.2);
+        ReflectionTestUtils.setField(router, "maxErrorRate", 0.5);
+        ReflectionTestUtils.setField(router, "slowThresholdMs", 10_000L);
+        ReflectionTestUtils.setField(router, "recoveryMs", 30_000L);
+        ReflectionTestUtils.setField(router, "hedgeEnabled", hedge);
+        ReflectionTestUtils.setField(router, "hedgeMinDelayMs", 50L);
+        ReflectionTestUtils.setField(router, "hedgeLatencyMultiplier", 3.0);
+        return router;
+    }
+
+    private static final class FakeProvider implements StorageProvider {
+        private final String name;
+        private final int priority;
+        private final long delayMs;
+        private final boolean failing;
+        private final List<String> deleted = new CopyOnWriteArrayList<>();
+        private volatile int uploads;
+
+        private FakeProvider(String name, int priority, long delayMs, boolean failing) {
+            this.name = name;
+            this.priority = priority;
+            this.delayMs = delayMs;
+            this.failing = failing;
+        }
+
+        @Override
+        public String uploadFile(File file, String contentType) {
+            uploads++;
+            try {
+                Thread.sleep(delayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (failing) {
+                throw new IllegalStateException(name + " unavailable");
+            }
+            return name + "-url";
+        }
+
+        @Override
+        public String uploadFile(File file, String contentType, Map<String, String> customTags) {
+            return uploadFile(file, contentType);
+        }
+
+        @Override
+        public String getFileUrl(String fileName) {
+            return name + "/" + fileName;
+        }
+
+        @Override
+        public boolean isAvailable() {
+            return true;
+        }
+
+        @Override
+        public boolean deleteFile(String fileUrl) {
+            return deleted.add(fileUrl);
+        }
+
+        @Override
+        public int getPriority() {
+            return priority;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.ynov.recaipes.service;
+
+import com.ynov.recaipes.model.StoredObject;
+import com.ynov.recaipes.repository.StoredObjectRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StorageServiceTest {
+
+    private final StorageProvider bucket = mock(StorageProvider.class);
+    private final StorageRouter router = mock(StorageRouter.class);
+    private final StoredObjectRepository repository = mock(StoredObjectRepository.class);
+    private final StorageService service;
+
+    StorageServiceTest() {
+        when(bucket.getName()).thenReturn("bucket");
+        when(bucket.isAvailable()).thenReturn(true);
+        when(bucket.canHandle(anyString())).thenAnswer(call -> call.<String>getArgument(0).startsWith("https://bucket/"));
+        service = new StorageService(List.of(bucket), mock(RestTemplate.class), router, repository);
+    }
+
+    @Test
+    void recordsNativeIdAtUpload() {
+        when(router.upload(any(File.class), anyString(), anyMap())).thenReturn("https://bucket/public/file/abc||42");
+
+        service.uploadFile(new File("recipe_1.pdf"), "application/pdf", Map.of());
+
+        ArgumentCaptor<StoredObject> saved = ArgumentCaptor.forClass(StoredObject.class);
+        verify(repository).save(saved.capture());
+        assertEquals("https://bucket/public/file/abc", saved.getValue().getUrl());
+        assertEquals("bucket", saved.getValue().getProvider());
+        assertEquals("42", saved.getValue().getNativeId());
+    }
+
+    @Test
+    void deletesWithStoredNativeIdInOneCall() {
+        StoredObject stored = new StoredObject("https://bucket/public/file/abc", "bucket", "42");
+        when(repository.findFirstByUrlOrderByIdDesc("https://bucket/public/file/abc")).thenReturn(Optional.of(stored));
+        when(bucket.deleteFile(anyString())).thenReturn(true);
+
+        assertTrue(service.deleteFile("https://bucket/public/file/abc"));
+
+        verify(bucket).deleteFile(eq("https://bucket/public/file/abc||42"));
+        verify(repository).delete(stored);
+    }
+}
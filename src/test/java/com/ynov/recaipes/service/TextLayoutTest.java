@@ -0,0 +1,61 @@
+package com.ynov.recaipes.service;
+
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TextLayoutTest {
+
+    private static final float SIZE = 12;
+    private static final float WIDTH = 495;
+
+    private final TextLayout layout = TextLayout.of(PDType1Font.HELVETICA);
+
+    @Test
+    void wrapsLikeTheLegacyLineBreaker() throws Exception {
+        // le texte vide est traité par l'appelant (drawMultilineText)
+        List<String> samples = List.of(
+                "\n\n",
+                "Une ligne courte",
+                "1. Préchauffer le four à 220 °C. Étaler la pâte finement, garnir de sauce tomate, de mozzarella "
+                        + "égouttée et de basilic frais, puis enfourner 12 minutes en surveillant la cuisson.\r\n"
+                        + "2. Servir aussitôt.\r\r\n",
+                "  espaces  multiples   au début et au milieu d'une très longue ligne qui dépasse largement la "
+                        + "largeur disponible de la page A4, avec des mots    séparés par plusieurs espaces   ",
+                "Anticonstitutionnellement".repeat(12) + " suivi de mots courts",
+                " ".repeat(300) + "x"
+        );
+        for (String sample : samples) {
+            assertEquals(LegacyPdfLineBreaker.wrap(PDType1Font.HELVETICA, SIZE, WIDTH, sample),
+                    layout.wrap(sample, SIZE, WIDTH), sample);
+        }
+    }
+
+    @Test
+    void matchesLegacyOnRandomText() throws Exception {
+        Random random = new Random(42);
+        String alphabet = "abcdefghijklmnopqrstuvwxyzéèàç ABCDEFGH  0123456789,.;:'\n";
+        for (int run = 0; run < 200; run++) {
+            StringBuilder text = new StringBuilder();
+            int length = 1 + random.nextInt(600);
+            for (int i = 0; i < length; i++) {
+                text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            String sample = text.toString();
+            float width = 50 + random.nextInt(500);
+            assertEquals(LegacyPdfLineBreaker.wrap(PDType1Font.HELVETICA, SIZE, width, sample),
+                    layout.wrap(sample, SIZE, width), sample);
+        }
+    }
+
+    @Test
+    void widthMatchesPdfBox() throws Exception {
+        String title = "Pâtes fraîches à la crème & aux champignons";
+        assertEquals(PDType1Font.HELVETICA_BOLD.getStringWidth(title) / 1000 * 24,
+                TextLayout.of(PDType1Font.HELVETICA_BOLD).width(title, 24));
+    }
+}
@@ -0,0 +1,131 @@
+package com.ynov.recaipes.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ynov.recaipes.model.PdfMetadata;
+import com.ynov.recaipes.model.Recipe;
+import com.ynov.recaipes.model.UploadOutboxEntry;
+import com.ynov.recaipes.repository.PdfMetadataRepository;
+import com.ynov.recaipes.repository.RecipeRepository;
+import com.ynov.recaipes.repository.UploadOutboxRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+@DataJpaTest
+class UploadOutboxServiceTest {
+
+    private static final String PROVISIONAL = "file://./pdfs/recipe_1.pdf";
+
+    @Autowired
+    private UploadOutboxRepository outboxRepository;
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private PdfMetadataRepository pdfMetadataRepository;
+
+    private final StorageTombstoneService storageTombstoneService = mock(StorageTombstoneService.class);
+    private UploadOutboxService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new UploadOutboxService(outboxRepository, recipeRepository, pdfMetadataRepository,
+                storageTombstoneService, new ObjectMapper());
+        ReflectionTestUtils.setField(service, "batchSize", 10);
+        ReflectionTestUtils.setField(service, "maxAttempts", 2);
+        ReflectionTestUtils.setField(service, "retryBaseDelaySeconds", 30L);
+        ReflectionTestUtils.setField(service, "retryMaxDelaySeconds", 3600L);
+        ReflectionTestUtils.setField(service, "pollIntervalMs", 5000L);
+        ReflectionTestUtils.setField(service, "swapTimeoutSeconds", 600L);
+    }
+
+    @Test
+    void swapsProvisionalUrlOnRecipesAndMetadata() {
+        Recipe recipe = new Recipe();
+        recipe.setTitle("Pizza");
+        recipe.setPdfUrl(PROVISIONAL);
+        recipe = recipeRepository.save(recipe);
+        PdfMetadata metadata = new PdfMetadata();
+        metadata.setS3Url(PROVISIONAL);
+        metadata.setRecipe(recipe);
+        pdfMetadataRepository.save(metadata);
+
+        UploadOutboxEntry entry = service.enqueue(recipe.getId(), "./pdfs/recipe_1.pdf", "application/pdf",
+                Map.of("tag2", "Pizza"), PROVISIONAL);
+        assertEquals(Map.of("tag2", "Pizza"), service.readTags(entry));
+        assertTrue(service.isStillReferenced(entry));
+
+        service.recordUpload(entry, "https://bucket/public/file/42||42");
+        assertTrue(service.swapToRemote(entry));
+
+        Recipe updated = recipeRepository.findById(recipe.getId()).orElseThrow();
+        assertEquals("https://bucket/public/file/42", updated.getPdfUrl());
+        assertEquals("42", updated.getExternalId());
+        assertTrue(pdfMetadataRepository.existsByS3Url("https://bucket/public/file/42"));
+        assertEquals(UploadOutboxEntry.Status.DONE, outboxRepository.findById(entry.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void waitsForRecipeThenCancelsAndDiscardsRemoteCopyWhenUnreferenced() {
+        PdfMetadata metadata = new PdfMetadata();
+        metadata.setS3Url(PROVISIONAL);
+        metadata = pdfMetadataRepository.save(metadata);
+        UploadOutboxEntry entry = service.enqueue(1L, "./pdfs/recipe_1.pdf", "application/pdf", null, PROVISIONAL);
+        service.recordUpload(entry, "https://bucket/public/file/42||42");
+
+        // recette pas encore enregistrée avec l'URL provisoire : remplacement reporté
+        assertFalse(service.swapToRemote(entry));
+        assertEquals(UploadOutboxEntry.Status.PENDING, entry.getStatus());
+        assertTrue(service.nextBatch().isEmpty());
+
+        pdfMetadataRepository.delete(metadata);
+        assertTrue(service.swapToRemote(entry));
+        assertEquals(UploadOutboxEntry.Status.CANCELLED, entry.getStatus());
+        // la copie distante n'est plus référencée : elle est confiée au ramasse-miettes
+        verify(storageTombstoneService).enqueue(List.of("https://bucket/public/file/42||42"));
+    }
+
+    @Test
+    void givesUpWhenRecipeNeverReceivesProvisionalUrl() {
+        // génération échouée après le PDF : métadonnées orphelines, recette jamais mise à jour
+        PdfMetadata metadata = new PdfMetadata();
+        metadata.setS3Url(PROVISIONAL);
+        pdfMetadataRepository.save(metadata);
+        UploadOutboxEntry entry = service.enqueue(1L, "./pdfs/recipe_1.pdf", "application/pdf", null, PROVISIONAL);
+        service.recordUpload(entry, "https://bucket/public/file/42||42");
+        assertFalse(service.swapToRemote(entry));
+
+        ReflectionTestUtils.setField(service, "swapTimeoutSeconds", 0L);
+        entry.setCreatedAt(LocalDateTime.now().minusSeconds(1));
+        assertTrue(service.swapToRemote(entry));
+        assertEquals(UploadOutboxEntry.Status.FAILED, entry.getStatus());
+        verify(storageTombstoneService).enqueue(List.of("https://bucket/public/file/42||42"));
+    }
+
+    @Test
+    void retriesWithBackoffThenGivesUp() {
+        UploadOutboxEntry entry = service.enqueue(1L, "./pdfs/recipe_1.pdf", "application/pdf", null, PROVISIONAL);
+        assertEquals(1, service.nextBatch().size());
+
+        service.recordFailure(entry, "bucket down");
+        assertEquals(UploadOutboxEntry.Status.PENDING, entry.getStatus());
+        assertTrue(service.nextBatch().isEmpty());
+
+        service.recordFailure(entry, "bucket down");
+        assertEquals(UploadOutboxEntry.Status.FAILED, entry.getStatus());
+        assertEquals("bucket down", entry.getLastError());
+    }
+}